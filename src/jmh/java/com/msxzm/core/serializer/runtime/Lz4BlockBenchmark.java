@@ -0,0 +1,137 @@
+package com.msxzm.core.serializer.runtime;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lz4Block 的压缩、解压速度的JMH基准测试，和收支平衡带宽，用来定 -Aserializer.compressThreshold
+ * 压缩划算的条件是 省下的传输时间 > 压缩 + 解压的时间，即链路带宽低于
+ * (1 - 压缩后/原始) / (1/压缩速度 + 1/解压速度)；同时小块的固定开销占比大，阈值取带宽满足条件的最小块大小
+ * 用法: mvn -Pjmh test-compile 后 java -cp ... Lz4BlockBenchmark [样例文件] [链路带宽MB/s]，
+ * 不给样例文件时用生成的类文本数据，默认带宽100MB/s；也可以直接用JMH的Runner跑，-p size=... -p sample=...
+ * @author zenghongming
+ * @date 2026/10/17 23:10
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Lz4BlockBenchmark {
+    /** 默认链路带宽(MB/s) */
+    private static final double DEFAULT_BANDWIDTH = 100;
+    private static final double MB = 1 << 20;
+
+    /** 块大小 */
+    @Param({"256", "1024", "4096", "16384", "65536", "262144", "1048576"})
+    private int size;
+    /** 样例文件，空的用生成的类文本数据 */
+    @Param("")
+    private String sample;
+
+    /** 原始数据 */
+    private byte[] data;
+    /** 压缩后的数据，不可压缩时为null */
+    private byte[] packed;
+
+    @Setup
+    public void setup() throws IOException {
+        data = Arrays.copyOf(load(sample, size), size);
+        packed = Lz4Block.compress(data, 0);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return Lz4Block.compress(data, 0);
+    }
+
+    @Benchmark
+    public byte[] decompress() {
+        return packed == null ? data : Lz4Block.decompress(packed);
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        String samplePath = args.length > 0 ? args[0] : "";
+        double bandwidth = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_BANDWIDTH;
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(Lz4BlockBenchmark.class.getName())
+                .param("sample", samplePath)
+                .build()).run();
+        // 块大小 -> 每秒次数 {压缩, 解压}
+        Map<Integer, double[]> speeds = new TreeMap<>();
+        for (RunResult result : results) {
+            int size = Integer.parseInt(result.getParams().getParam("size"));
+            boolean compress = result.getParams().getBenchmark().endsWith(".compress");
+            speeds.computeIfAbsent(size, key -> new double[2])[compress ? 0 : 1] = result.getPrimaryResult().getScore();
+        }
+        System.out.printf("%10s %8s %14s %16s %16s%n", "size", "ratio", "compress MB/s", "decompress MB/s", "break-even MB/s");
+        int threshold = -1;
+        for (Map.Entry<Integer, double[]> entry : speeds.entrySet()) {
+            int size = entry.getKey();
+            byte[] packed = Lz4Block.compress(Arrays.copyOf(load(samplePath, size), size), 0);
+            if (packed == null) {
+                System.out.printf("%10d %8s %14s %16s %16s%n", size, "-", "-", "-", "incompressible");
+                continue;
+            }
+            double compressSpeed = entry.getValue()[0] * size / MB;
+            double decompressSpeed = entry.getValue()[1] * size / MB;
+            double saved = 1 - (double) packed.length / size;
+            double breakEven = saved / (1 / compressSpeed + 1 / decompressSpeed);
+            System.out.printf("%10d %8.3f %14.1f %16.1f %16.1f%n", size, (double) packed.length / size, compressSpeed, decompressSpeed, breakEven);
+            if (threshold < 0 && breakEven > bandwidth) {
+                threshold = size;
+            }
+        }
+        System.out.println(threshold < 0 ? "compression does not pay at " + bandwidth + " MB/s"
+                : "suggested -Aserializer.compressThreshold=" + threshold + " at " + bandwidth + " MB/s");
+    }
+
+    /**
+     * 读样例数据，样例文件比块小时重复填满
+     * @param path 样例文件，空的用生成的类文本数据
+     * @param size 至少需要的字节数
+     * @return 数据
+     */
+    private static byte[] load(String path, int size) throws IOException {
+        if (path.isEmpty()) {
+            return textLike(size);
+        }
+        byte[] sample = Files.readAllBytes(Paths.get(path));
+        if (sample.length == 0 || sample.length >= size) {
+            return sample;
+        }
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i += sample.length) {
+            System.arraycopy(sample, 0, data, i, Math.min(sample.length, size - i));
+        }
+        return data;
+    }
+
+    /**
+     * 生成类文本的样例数据，少量词随机组合，带数字
+     * @param size 字节数
+     * @return 数据
+     */
+    private static byte[] textLike(int size) {
+        String[] words = {"id", "name", "level", "score", "player", "item", "count", "\"", ":", ",", " ", "{", "}", "\n"};
+        Random random = new Random(0);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; ) {
+            String word = random.nextInt(4) == 0 ? Integer.toString(random.nextInt(100000)) : words[random.nextInt(words.length)];
+            for (int j = 0; j < word.length() && i < size; ++j) {
+                data[i++] = (byte) word.charAt(j);
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,158 @@
+package com.msxzm.core.serializer;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import java.util.Map;
+
+/**
+ * 处理器选项(javac -A参数)
+ * <p>
+ * 选项值为 true 时对所有类生效，也可以用逗号分隔的类名、字段名(类名.字段名)指定生效范围，
+ * 类名可以是完全限定名或简单类名，如: -Aserializer.nullBitmap=com.xx.Msg,Login
+ * @author zenghongming
+ * @date 2026/10/17 10:20
+ */
+enum SerializerOption {
+    /** 所有可空字段的null标记合并成一个位图写在最前面 */
+    NULL_BITMAP("serializer.nullBitmap"),
+    /** int/long用zig-zag变长编码，数组、集合、Map的长度用无符号变长编码 */
+    VARINT("serializer.varint"),
+    /** 非private字段直接读写，不走getter/setter */
+    FIELD_ACCESS("serializer.fieldAccess"),
+    /** 元素为Integer/Long的List、键值为Integer/Long的Map读成基础类型集合，元素按基础类型写且不能为null */
+    PRIMITIVE_COLLECTION("serializer.primitiveCollection"),
+    /** 生成 write(ByteBuffer, Xxx)、read(ByteBuffer, Xxx) 重载，直接读写堆内、堆外、内存映射缓冲区 */
+    BYTE_BUFFER("serializer.byteBuffer"),
+    /** ByteBuffer格式中的父类部分、数组、集合、Map、嵌套对象字段写成带长度前缀的块，读时可以整块跳过，与不开启时的格式不兼容，需要同时开启byteBuffer */
+    BUFFER_BLOCKS("serializer.bufferBlocks"),
+    /** 生成延迟解码视图 XxxLazyView，getter被调用时才解码字段，需要同时开启byteBuffer和bufferBlocks */
+    LAZY_VIEW("serializer.lazyView"),
+    /** ByteBuffer格式按字段写标签和值类型，增删字段后新旧版本可以互相读，布局一致时仍按位置读，需要同时开启byteBuffer */
+    TAGGED("serializer.tagged"),
+    /** 生成增量读写 writeDelta(out, instance, dirtyMask)、readDelta(in, instance) 和脏标记跟踪子类 XxxTracked */
+    DELTA("serializer.delta"),
+    /** 引用共享模式，嵌套对象出现过的写引用编号，支持共享对象和环 */
+    REFERENCE("serializer.reference"),
+    /** 字符串按字典编码，同一次读写(包括嵌套对象)中重复出现的字符串写编号，只用于流格式，可以按字段指定 */
+    STRING_DICTIONARY("serializer.stringDictionary"),
+    /** 读字符串时经过全局的有损驻留缓存，内容相同的字符串尽量共用一个实例，可以按字段指定 */
+    STRING_INTERN("serializer.stringIntern"),
+    /** 生成批量读写 writeBatch(out, List<Xxx>)、readBatch(in)，写一次元素个数后连续写元素，整批共用字符串字典表 */
+    BATCH("serializer.batch"),
+    /** 批量读写按列布局，所有元素的同一个字段连续写，基础类型字段整块读写，需要同时开启batch */
+    BATCH_COLUMNAR("serializer.batchColumnar"),
+    /** 生成复用对象的读 readInto(in, instance) 和对象池读 readPooled(in, pool)，字段原来的集合、Map、数组、嵌套对象清空后复用 */
+    REUSE("serializer.reuse"),
+    /** 嵌套的Serializable对象直接调用其序列化类读写，不走流的通用读写，非final类多写一个类型是否一致的标记，不一致的仍走通用读写 */
+    INLINE_NESTED("serializer.inlineNested"),
+    /** 生成 writeParallel(buffer, instance, pool)、readParallel(buffer, instance, pool)，大集合字段分块在线程池中并行编解码，需要同时开启byteBuffer，可以按字段指定 */
+    PARALLEL("serializer.parallel"),
+    /** 集合、Map字段生成流式读 readXxxStreaming(in, instance, visitor)，元素每解码一个就交给visitor，不整个读到内存，可以按字段指定 */
+    STREAMING("serializer.streaming"),
+    /** 字段(包括父类的)全部是基础类型的类生成定长布局的ByteBuffer读写、数组整块读写 writeStructs/readStructs 和平铺视图 XxxStructView */
+    STRUCT("serializer.struct"),
+    /** read write(包括ByteBuffer的)记录调用次数、采样耗时和ByteBuffer读写的字节数到 SerializerMetrics，不开启时不生成任何代码 */
+    METRICS("serializer.metrics"),
+    /** byte[]字段超过阈值时用LZ4块压缩，写一个是否压缩的标记，压缩后不更小的原样写，可以按字段指定 */
+    COMPRESS("serializer.compress"),
+    /** 压缩阈值(字节)，小于它的byte[]不压缩，默认4096 */
+    COMPRESS_THRESHOLD("serializer.compressThreshold"),
+    /**
+     * 生成 static int sizeOf(Xxx) 计算序列化后的字节数，字符串按上限计算
+     * 流的通用写的字节数未知，有嵌套对象(开启inlineNested的final类除外)、抽象类型、Object字段的类不生成，
+     * 选项值为true时警告，显式指定的类报错
+     */
+    SIZE_OF("serializer.sizeOf"),
+    /**
+     * 生成JMH基准测试 XxxIOSerializerBenchmark，不参与本次编译，写到 benchmarkPath 目录
+     * 默认目录 src/jmh/java 由工程的 jmh profile 加为测试源码目录，mvn -Pjmh test-compile 编译并生成JMH的基准测试列表
+     */
+    BENCHMARK("serializer.benchmark"),
+    /** 基准测试使用的流工厂，BenchmarkStreams的实现类完全限定名 */
+    BENCHMARK_STREAMS("serializer.benchmarkStreams"),
+    /** 基准测试源码输出目录(相对工程目录)，默认 src/jmh/java，改了目录时要自己加到编译的源码目录中 */
+    BENCHMARK_PATH("serializer.benchmarkPath"),
+    /** 多态分发类的完全限定名，指定后抽象类、非Serializable类型的字段写类型id并直接调用具体类的序列化类 */
+    DISPATCHER("serializer.dispatcher"),
+    /** 多态分发的固定类型id，逗号分隔的 类名=id，id在 [2, 16384) 内，未指定的类按完全限定名的哈希取 [16384, 2097152) 内的id */
+    TYPE_IDS("serializer.typeIds"),
+    ;
+
+    /** 全部生效 */
+    private static final String ALL = "true";
+    /** 分隔符 */
+    private static final String SEPARATOR = ",";
+
+    /** 选项名 */
+    String key;
+
+    SerializerOption(String key) {
+        this.key = key;
+    }
+
+    /**
+     * 对某个类或字段是否生效，字段未单独指定时以所在类为准
+     * @param options 处理器选项
+     * @param element 类或字段元素
+     * @return 生效 true
+     */
+    boolean isEnabled(Map<String, String> options, Element element) {
+        String value = options.get(key);
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+        if (ALL.equalsIgnoreCase(value.trim())) {
+            return true;
+        }
+        boolean isField = element.getKind() == ElementKind.FIELD;
+        for (String name : value.split(SEPARATOR)) {
+            name = name.trim();
+            // 字段跟随所在类的设置
+            if (matches(name, element) || (isField && matches(name, element.getEnclosingElement()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否对所有类生效(选项值为true)，用于区分自动检测和显式指定
+     * @param options 处理器选项
+     * @return 是 true
+     */
+    boolean isAll(Map<String, String> options) {
+        String value = options.get(key);
+        return value != null && ALL.equalsIgnoreCase(value.trim());
+    }
+
+    /**
+     * 获取选项值
+     * @param options 处理器选项
+     * @param defaultValue 默认值
+     * @return 选项值
+     */
+    String getValue(Map<String, String> options, String defaultValue) {
+        String value = options.get(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    /**
+     * 名字是否匹配元素
+     * @param name 类名或者 类名.字段名
+     * @param element 元素
+     * @return 匹配 true
+     */
+    private static boolean matches(String name, Element element) {
+        if (element instanceof TypeElement) {
+            TypeElement typeElement = (TypeElement) element;
+            return name.equals(typeElement.getQualifiedName().toString()) || name.equals(typeElement.getSimpleName().toString());
+        }
+        if (element.getKind() == ElementKind.FIELD) {
+            String fieldName = element.getSimpleName().toString();
+            int index = name.lastIndexOf('.');
+            return index > 0 && fieldName.equals(name.substring(index + 1)) && matches(name.substring(0, index), element.getEnclosingElement());
+        }
+        return false;
+    }
+}
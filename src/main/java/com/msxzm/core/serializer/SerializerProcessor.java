@@ -4,6 +4,18 @@ import com.google.auto.service.AutoService;
 import com.msxzm.base.GeneratedFile;
 import com.msxzm.base.serializer.Serializable;
 import com.msxzm.base.serializer.SerializerField;
+import com.msxzm.core.serializer.runtime.BenchmarkStreams;
+import com.msxzm.core.serializer.runtime.ByteBuffers;
+import com.msxzm.core.serializer.runtime.Lz4Block;
+import com.msxzm.core.serializer.runtime.ObjectPool;
+import com.msxzm.core.serializer.runtime.ParallelChunks;
+import com.msxzm.core.serializer.runtime.ReferenceTable;
+import com.msxzm.core.serializer.runtime.SampleData;
+import com.msxzm.core.serializer.runtime.SerializerMetrics;
+import com.msxzm.core.serializer.runtime.Sizes;
+import com.msxzm.core.serializer.runtime.StringTable;
+import com.msxzm.core.serializer.runtime.TaggedFields;
+import com.msxzm.core.serializer.runtime.VarInts;
 import com.squareup.javapoet.*;
 import com.sun.tools.javac.api.JavacTrees;
 import com.sun.tools.javac.code.Type;
@@ -20,25 +32,38 @@ import com.sun.tools.javac.util.ListBuffer;
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
 import javax.tools.FileObject;
 import javax.tools.StandardLocation;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
  * 序列化处理类
+ * 生成的代码依赖 com.msxzm.core.serializer.runtime，运行时要带上 runtime 分类的jar，见 runtime/package-info.java
  * @author zenghongming
  * @date 2020/1/13 15:53
  */
@@ -46,8 +71,74 @@ import java.util.function.Consumer;
 public class SerializerProcessor extends AbstractProcessor {
     /** 元素后缀 */
     private static final String ELEMENT = "Element";
+    /** 基础类型集合局部变量后缀 */
+    private static final String PRIMITIVE = "Primitive";
+    /** sizeOf方法名 */
+    private static final String SIZE_OF = "sizeOf";
+    /** sizeOf中累加字节数的局部变量 */
+    private static final String SIZE = "size";
+    /** 引用共享模式对象表的局部变量名 */
+    private static final String REFERENCE_TABLE = "referenceTable";
+    /** 字典编码字符串表的局部变量名 */
+    private static final String STRING_TABLE = "stringTable";
+    /** 脏标记跟踪子类名后缀 */
+    private static final String TRACKED = "Tracked";
+    /** 复用对象的读方法名 */
+    private static final String READ_INTO = "readInto";
+    /** 流式读方法名后缀 */
+    private static final String STREAMING = "Streaming";
+    /** 流式读的元素回调参数名 */
+    private static final String VISITOR = "visitor";
+    /** 脏标记常量前缀 */
+    private static final String DIRTY = "DIRTY_";
+    /** 脏标记掩码的变量名 */
+    private static final String DIRTY_MASK = "dirtyMask";
+    /** 延迟解码视图类名后缀 */
+    private static final String LAZY_VIEW = "LazyView";
+    /** 定长布局平铺视图类名后缀 */
+    private static final String STRUCT_VIEW = "StructView";
+    /** 定长布局字节数常量名 */
+    private static final String STRUCT_SIZE = "STRUCT_SIZE";
+    /** 运行指标常量名 */
+    private static final String METRICS = "METRICS";
+    /** 运行指标 开始时间局部变量名 */
+    private static final String METRICS_START = "metricsStart";
+    /** 运行指标 开始位置局部变量名 */
+    private static final String METRICS_POSITION = "metricsPosition";
+    /** 并行读写方法名后缀 */
+    private static final String PARALLEL = "Parallel";
+    /** 并行读写的线程池参数名 */
+    private static final String FORK_JOIN_POOL = "forkJoinPool";
+    /** 带标签格式的布局指纹常量名 */
+    private static final String TAGGED_SCHEMA = "TAGGED_SCHEMA";
+    /** 带标签格式的消息块名 */
+    private static final String TAGGED_MESSAGE = "tagged_message";
+    /** 块长度前缀的字节数 */
+    private static final int BLOCK_PREFIX = Integer.BYTES;
+    /** ByteBuffer读写方法的参数名 */
+    private static final String BUFFER = "buffer";
+    /** HashMap、HashSet的默认负载因子 */
+    private static final String HASH_LOAD_FACTOR = "0.75";
+    /** 按读出的长度预分配容量的上限，长度来自数据，不能直接信任 */
+    private static final String MAX_INITIAL_CAPACITY = "1 << 16";
     private static final String SOURCE_PATH = Utils.fixPath("src/gen/java");
     private static final String TARGET_PATH = Utils.fixPath("target/generated-sources/annotations");
+    /** 基准测试源码默认目录 */
+    private static final String BENCHMARK_PATH = Utils.fixPath("src/jmh/java");
+    /** 生成文件头的指纹标记 */
+    private static final String FINGERPRINT = "Fingerprint: ";
+    /** Gradle增量编译类型选项前缀 */
+    private static final String GRADLE_INCREMENTAL = "org.gradle.annotation.processing.";
+    /** 多态分发 null的类型id */
+    private static final int NULL_TYPE_ID = 0;
+    /** 多态分发 未登记类型的类型id，走流的通用读写 */
+    private static final int GENERIC_TYPE_ID = 1;
+    /** 多态分发 指定的类型id的上限(不包括)，变长int不超过2字节 */
+    private static final int EXPLICIT_TYPE_ID_LIMIT = 1 << 14;
+    /** 多态分发 哈希的类型id的上限(不包括)，变长int不超过3字节 */
+    private static final int HASHED_TYPE_ID_LIMIT = 1 << 21;
+    /** JMH注解包名 */
+    private static final String JMH_PACKAGE = "org.openjdk.jmh.annotations";
 
     /** 编译信息输出 */
     private Messager messager;
@@ -60,28 +151,92 @@ public class SerializerProcessor extends AbstractProcessor {
     /** 类型 */
     private Types types;
     private Filer filer;
-
+    /** 处理器选项 */
+    private Map<String, String> options;
+    /** 流是否支持批量读写基础类型数组 方法名 -> 是否支持 */
+    private Map<String, Boolean> bulkMethodMap = new HashMap<>();
+    /** 类型分类缓存 擦除后的类型名 -> 分类，每轮清空 */
+    private Map<String, Set<TypeCategory>> typeCategoryMap = new HashMap<>();
+    /** 父类型缓存 擦除后的类型名 -> 所有父类型(包括本身)擦除后的类型名，每轮清空 */
+    private Map<String, Set<String>> supertypeMap = new HashMap<>();
+    /** 当前生成的读写方法的状态 */
+    private GenerationContext generation = new GenerationContext();
+    /** 类是否有sizeOf 类完全限定名 -> 有 true，每轮清空 */
+    private Map<String, Boolean> sizeOfMap = new HashMap<>();
+    /** byte[]字段的压缩阈值 */
+    private int compressThreshold = Lz4Block.DEFAULT_THRESHOLD;
+    /** 类是否有ByteBuffer读写 类完全限定名 -> 不支持的原因，支持时为空字符串，每轮清空 */
+    private Map<String, String> bufferMap = new HashMap<>();
+    /** 本轮的类 */
+    private JavaSourceWrapper javaSourceWrapper;
+    /** 多态分发类，未开启时为null */
+    private ClassName dispatcher;
+    /** 多态分发类是否已生成 */
+    private boolean dispatcherGenerated;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
         super.init(processingEnv);
-        Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
-        this.trees = JavacTrees.instance(processingEnv);
+        JavacProcessingEnvironment javacProcessingEnv = unwrap(processingEnv);
+        Context context = javacProcessingEnv.getContext();
+        this.trees = JavacTrees.instance(javacProcessingEnv);
         this.treeMaker = TreeMaker.instance(context);
         this.messager = processingEnv.getMessager();
         this.types = processingEnv.getTypeUtils();
         this.elements = processingEnv.getElementUtils();
         this.filer = processingEnv.getFiler();
+        this.options = processingEnv.getOptions();
+        String dispatcherName = SerializerOption.DISPATCHER.getValue(options, null);
+        this.dispatcher = dispatcherName == null ? null : ClassName.bestGuess(dispatcherName);
+        String threshold = SerializerOption.COMPRESS_THRESHOLD.getValue(options, null);
+        if (threshold != null) {
+            try {
+                this.compressThreshold = Integer.parseInt(threshold);
+            } catch (NumberFormatException e) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "-A" + SerializerOption.COMPRESS_THRESHOLD.key + " 不是整数，使用默认值 " + compressThreshold);
+            }
+        }
+    }
+
+    /**
+     * 取出javac的处理环境，Gradle增量编译时处理环境会被包装一层(delegate字段)
+     * @param processingEnv 处理环境
+     * @return javac处理环境
+     */
+    private static JavacProcessingEnvironment unwrap(ProcessingEnvironment processingEnv) {
+        Object env = processingEnv;
+        while (!(env instanceof JavacProcessingEnvironment)) {
+            Object delegate = null;
+            for (Class<?> clazz = env.getClass(); clazz != null && delegate == null; clazz = clazz.getSuperclass()) {
+                try {
+                    Field field = clazz.getDeclaredField("delegate");
+                    field.setAccessible(true);
+                    delegate = field.get(env);
+                } catch (NoSuchFieldException | IllegalAccessException e) {
+                    // 继续找父类
+                }
+            }
+            if (delegate == null) {
+                throw new IllegalStateException("不支持的处理环境: " + processingEnv.getClass().getName());
+            }
+            env = delegate;
+        }
+        return (JavacProcessingEnvironment) env;
     }
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
-        JavaSourceWrapper javaSourceWrapper = new JavaSourceWrapper();
-        // 找出所有有Serializable注解的类,
+        // 每轮的类型可能不一样(比如上一轮生成的类)
+        typeCategoryMap.clear();
+        supertypeMap.clear();
+        sizeOfMap.clear();
+        bufferMap.clear();
+        javaSourceWrapper = new JavaSourceWrapper();
+        // 找出所有有Serializable注解的顶层类,
         // 即使没有SerializerField注解的类也需要生成序列化辅助类，比如某些没有需序列化的父类
-        roundEnv.getRootElements().forEach(e -> {
-            TypeElement element = (TypeElement) e;
-            if (element.getAnnotation(Serializable.class) == null) {
+        // 只通过支持的注解取元素，Gradle增量编译(isolating)据此追踪来源
+        ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(Serializable.class)).forEach(element -> {
+            if (element.getNestingKind().isNested()) {
                 return;
             }
             javaSourceWrapper.computeIfAbsent(element);
@@ -109,6 +264,12 @@ public class SerializerProcessor extends AbstractProcessor {
 
             // 自定义序列化
             boolean isCustomized = classWrapper.isCustomizedSerialize();
+            // 运行指标，序列化类初始化时登记
+            if (SerializerOption.METRICS.isEnabled(options, classWrapper.element)) {
+                classWrapper.classSpec.addField(FieldSpec.builder(SerializerMetrics.class, METRICS, Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$T.register($T.class)", SerializerMetrics.class, ClassName.get(classWrapper.element))
+                        .build());
+            }
             // 增加write方法
             try {
                 classWrapper.addMethodSpec(makeReadWriteMethodSpec(classWrapper, SerializerBound.WRITE, isCustomized));
@@ -121,11 +282,179 @@ public class SerializerProcessor extends AbstractProcessor {
             } catch (Exception e) {
                 messager.printMessage(Diagnostic.Kind.WARNING, classWrapper.getSimpleName() + " : " + e.getMessage());
             }
+            // 增加ByteBuffer读写方法
+            if (SerializerOption.BYTE_BUFFER.isEnabled(options, classWrapper.element)) {
+                try {
+                    if (hasBuffer(classWrapper.element.asType())) {
+                        classWrapper.addMethodSpec(makeBufferMethodSpec(classWrapper, SerializerBound.WRITE));
+                        classWrapper.addMethodSpec(makeBufferMethodSpec(classWrapper, SerializerBound.READ));
+                        // 带标签格式的布局指纹，子类也靠它判断父类是不是带标签的
+                        if (SerializerOption.TAGGED.isEnabled(options, classWrapper.element) && !isCustomized) {
+                            classWrapper.classSpec.addField(FieldSpec.builder(long.class, TAGGED_SCHEMA, Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                                    .initializer("$LL", getTaggedSchema(classWrapper))
+                                    .build());
+                        }
+                    } else {
+                        printWarning(classWrapper.getSimpleName(), "不生成ByteBuffer读写! " + bufferMap.get(classWrapper.element.getQualifiedName().toString()));
+                    }
+                } catch (Exception e) {
+                    messager.printMessage(Diagnostic.Kind.WARNING, classWrapper.getSimpleName() + " : " + e.getMessage());
+                }
+            }
+            // 大集合分块并行读写，可以只指定字段
+            if (hasParallel(classWrapper)) {
+                try {
+                    TypeElement element = classWrapper.element;
+                    if (!SerializerOption.BYTE_BUFFER.isEnabled(options, element) || SerializerOption.TAGGED.isEnabled(options, element)) {
+                        printWarning(classWrapper.getSimpleName(), "并行读写需要开启 -A" + SerializerOption.BYTE_BUFFER.key + " 且不带标签");
+                    } else if (hasBuffer(element.asType())) {
+                        makeParallelMethodSpec(classWrapper);
+                    }
+                } catch (Exception e) {
+                    messager.printMessage(Diagnostic.Kind.WARNING, classWrapper.getSimpleName() + " : " + e.getMessage());
+                }
+            }
+            // 复用对象的读和对象池读
+            if (SerializerOption.REUSE.isEnabled(options, classWrapper.element)) {
+                try {
+                    if (isCustomized) {
+                        printWarning(classWrapper.getSimpleName(), "自定义序列化的类不生成readInto");
+                    } else {
+                        makeReuseMethodSpec(classWrapper);
+                    }
+                } catch (Exception e) {
+                    messager.printMessage(Diagnostic.Kind.WARNING, classWrapper.getSimpleName() + " : " + e.getMessage());
+                }
+            }
+            // 增量读写和脏标记跟踪子类
+            if (SerializerOption.DELTA.isEnabled(options, classWrapper.element)) {
+                try {
+                    if (isCustomized) {
+                        printWarning(classWrapper.getSimpleName(), "自定义序列化的类不生成增量读写");
+                    } else if (classWrapper.variableList.size() > Long.SIZE) {
+                        printWarning(classWrapper.getSimpleName(), "字段超过" + Long.SIZE + "个，不生成增量读写");
+                    } else if (!hasDirtyNameConflict(classWrapper)) {
+                        makeDeltaMethodSpec(classWrapper);
+                        TypeSpec trackedSpec = makeTrackedSpec(classWrapper);
+                        if (trackedSpec != null) {
+                            classWrapper.build(trackedSpec).writeTo(filer);
+                        }
+                    }
+                } catch (Exception e) {
+                    messager.printMessage(Diagnostic.Kind.WARNING, classWrapper.getSimpleName() + " : " + e.getMessage());
+                }
+            }
+            // 批量读写
+            if (SerializerOption.BATCH.isEnabled(options, classWrapper.element)) {
+                try {
+                    TypeElement element = classWrapper.element;
+                    if (element.getModifiers().contains(Modifier.ABSTRACT) || !element.getTypeParameters().isEmpty() || !hasNoArgsConstructor(element)) {
+                        printWarning(classWrapper.getSimpleName(), "抽象类、泛型类或没有无参构造方法的类不生成批量读写");
+                    } else {
+                        classWrapper.addMethodSpec(makeBatchMethodSpec(classWrapper, SerializerBound.WRITE, isCustomized));
+                        classWrapper.addMethodSpec(makeBatchMethodSpec(classWrapper, SerializerBound.READ, isCustomized));
+                    }
+                } catch (Exception e) {
+                    messager.printMessage(Diagnostic.Kind.WARNING, classWrapper.getSimpleName() + " : " + e.getMessage());
+                }
+            }
+            // 集合、Map字段的流式读
+            classWrapper.forEach(variableWrapper -> {
+                TypeMirror type = variableWrapper.element.asType();
+                if (!SerializerOption.STREAMING.isEnabled(options, variableWrapper.element) || !isCollection(type) && !isMap(type)) {
+                    return;
+                }
+                String fieldName = classWrapper.getSimpleName() + "." + variableWrapper.variable.name;
+                try {
+                    if (isCustomized) {
+                        printWarning(fieldName, "自定义序列化的类不生成流式读");
+                    } else {
+                        MethodSpec.Builder streamingSpec = makeStreamingMethodSpec(classWrapper, variableWrapper);
+                        if (streamingSpec != null) {
+                            classWrapper.addMethodSpec(streamingSpec);
+                        } else {
+                            printWarning(fieldName, "元素类型不是具体类型，不生成流式读");
+                        }
+                    }
+                } catch (Exception e) {
+                    messager.printMessage(Diagnostic.Kind.WARNING, fieldName + " : " + e.getMessage());
+                }
+            });
+            // 延迟解码视图，单独一个类，参与本次编译
+            if (SerializerOption.LAZY_VIEW.isEnabled(options, classWrapper.element)) {
+                try {
+                    if (!SerializerOption.BYTE_BUFFER.isEnabled(options, classWrapper.element)) {
+                        printWarning(classWrapper.getSimpleName(), "延迟解码视图需要同时开启 -A" + SerializerOption.BYTE_BUFFER.key);
+                    } else if (SerializerOption.TAGGED.isEnabled(options, classWrapper.element)) {
+                        printWarning(classWrapper.getSimpleName(), "带标签的格式不生成延迟解码视图");
+                    } else if (!SerializerOption.BUFFER_BLOCKS.isEnabled(options, classWrapper.element)) {
+                        printWarning(classWrapper.getSimpleName(), "延迟解码视图需要同时开启 -A" + SerializerOption.BUFFER_BLOCKS.key);
+                    } else if (hasBuffer(classWrapper.element.asType())) {
+                        classWrapper.build(makeLazyViewSpec(classWrapper)).writeTo(filer);
+                    }
+                } catch (Exception e) {
+                    messager.printMessage(Diagnostic.Kind.WARNING, classWrapper.getSimpleName() + " : " + e.getMessage());
+                }
+            }
+            // 定长布局和平铺视图
+            if (SerializerOption.STRUCT.isEnabled(options, classWrapper.element)) {
+                try {
+                    java.util.List<VariableWrapper> structFields = isCustomized ? null : collectStructFields(classWrapper);
+                    if (structFields == null) {
+                        // 对所有类生效时只是自动检测，不符合的不用提示
+                        if (!SerializerOption.STRUCT.isAll(options)) {
+                            printWarning(classWrapper.getSimpleName(), "不是全部由基础类型字段组成，不生成定长布局");
+                        }
+                    } else {
+                        makeStructMethodSpec(classWrapper, structFields);
+                        classWrapper.build(makeStructViewSpec(classWrapper, structFields)).writeTo(filer);
+                    }
+                } catch (Exception e) {
+                    messager.printMessage(Diagnostic.Kind.WARNING, classWrapper.getSimpleName() + " : " + e.getMessage());
+                }
+            }
+            // 增加sizeOf方法
+            if (SerializerOption.SIZE_OF.isEnabled(options, classWrapper.element)) {
+                try {
+                    MethodSpec.Builder sizeOfSpec = makeSizeOfMethodSpec(classWrapper);
+                    if (sizeOfSpec != null) {
+                        classWrapper.addMethodSpec(sizeOfSpec);
+                    } else if (SerializerOption.SIZE_OF.isAll(options)) {
+                        printWarning(classWrapper.getSimpleName(), "无法计算字节数，不生成sizeOf! " + generation.unsupported);
+                    } else {
+                        // 显式指定的类不能静默跳过
+                        printError(classWrapper.getSimpleName(), "无法计算字节数，不能生成sizeOf! " + generation.unsupported);
+                    }
+                } catch (Exception e) {
+                    messager.printMessage(Diagnostic.Kind.WARNING, classWrapper.getSimpleName() + " : " + e.getMessage());
+                }
+            }
 
             // 写入到文件中
             classWrapper.writeToFile();
 //            classWrapper.writeToFile(SOURCE_PATH);
+
+            // JMH基准测试，不参与本次编译，单独输出到基准测试源码目录
+            if (SerializerOption.BENCHMARK.isEnabled(options, classWrapper.element)) {
+                try {
+                    TypeSpec benchmarkSpec = makeBenchmarkSpec(classWrapper);
+                    if (benchmarkSpec != null) {
+                        classWrapper.writeToFile(classWrapper.build(benchmarkSpec), SerializerOption.BENCHMARK_PATH.getValue(options, BENCHMARK_PATH));
+                    }
+                } catch (Exception e) {
+                    messager.printMessage(Diagnostic.Kind.WARNING, classWrapper.getSimpleName() + " : " + e.getMessage());
+                }
+            }
         });
+        // 多态分发类汇总所有类，只在第一轮生成
+        if (dispatcher != null && !javaSourceWrapper.isEmpty()) {
+            if (dispatcherGenerated) {
+                javaSourceWrapper.forEach(classWrapper -> printWarning(classWrapper.getSimpleName(), "多态分发类已生成，后续轮次的类不会登记类型id"));
+            } else {
+                dispatcherGenerated = true;
+                writeDispatcher(javaSourceWrapper);
+            }
+        }
         return true;
     }
 
@@ -133,9 +462,21 @@ public class SerializerProcessor extends AbstractProcessor {
     public Set<String> getSupportedAnnotationTypes() {
         Set<String> annotations = new LinkedHashSet<>();
         annotations.add(Serializable.class.getCanonicalName());
+        annotations.add(SerializerField.class.getCanonicalName());
         return annotations;
     }
 
+    @Override
+    public Set<String> getSupportedOptions() {
+        Set<String> supportedOptions = new LinkedHashSet<>();
+        for (SerializerOption option : SerializerOption.values()) {
+            supportedOptions.add(option.key);
+        }
+        // 多态分发类汇总了所有类，增量编译时只能按aggregating处理
+        supportedOptions.add(GRADLE_INCREMENTAL + (dispatcher != null ? "aggregating" : "isolating"));
+        return supportedOptions;
+    }
+
     @Override
     public SourceVersion getSupportedSourceVersion() {
         return SourceVersion.latestSupported();
@@ -149,13 +490,54 @@ public class SerializerProcessor extends AbstractProcessor {
      * @return 方法定义
      */
     private MethodSpec.Builder makeReadWriteMethodSpec(JavaClassWrapper classWrapper, SerializerBound bound, boolean isCustomized) {
-        // read write方法
-        MethodSpec.Builder methodSpec = MethodSpec.methodBuilder(bound.serializerExec)
-                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
-                .returns(void.class)
-                .addException(IOException.class)
-                .addParameter(bound.stream, bound.paramName)
-                .addParameter(ClassName.get(classWrapper.element), "instance");
+        MethodSpec.Builder methodSpec;
+        boolean tagged = isTagged(classWrapper);
+        if (generation.sizing) {
+            // sizeOf方法
+            methodSpec = MethodSpec.methodBuilder(SIZE_OF)
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .returns(int.class)
+                    .addParameter(ClassName.get(classWrapper.element), "instance")
+                    .addStatement("int $L = 0", SIZE);
+            if (isTagged(classWrapper)) {
+                methodSpec.addStatement("$L += $T.HEADER_SIZE", SIZE, TaggedFields.class);
+            }
+        } else if (generation.buffer) {
+            // ByteBuffer read write方法
+            methodSpec = MethodSpec.methodBuilder(generation.parallel ? bound.serializerExec + PARALLEL : generation.reusing ? READ_INTO : bound.serializerExec)
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .returns(void.class)
+                    .addParameter(ByteBuffer.class, BUFFER)
+                    .addParameter(ClassName.get(classWrapper.element), "instance");
+            if (!isCustomized && isTagged(classWrapper)) {
+                beginMetrics(methodSpec, classWrapper, bound);
+                return endMetrics(makeTaggedMethodSpec(methodSpec, classWrapper, bound), classWrapper, bound);
+            }
+        } else {
+            // read write方法
+            String methodName = generation.streamingField != null ? getStreamingName(generation.streamingField) : generation.reusing ? READ_INTO : bound.serializerExec;
+            methodSpec = MethodSpec.methodBuilder(methodName)
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .returns(void.class)
+                    .addException(IOException.class)
+                    .addParameter(bound.stream, bound.paramName)
+                    .addParameter(ClassName.get(classWrapper.element), "instance");
+        }
+        beginMetrics(methodSpec, classWrapper, bound);
+        // 引用共享模式，整个读写(包括父类)都在对象表中
+        generation.referenceElement = !generation.sizing && !generation.buffer && !isCustomized && SerializerOption.REFERENCE.isEnabled(options, classWrapper.element) ? classWrapper.element : null;
+        if (generation.referenceElement != null) {
+            methodSpec.addStatement("$T $L = $T.$L($L, instance)", ReferenceTable.class, REFERENCE_TABLE, ReferenceTable.class,
+                    bound == SerializerBound.WRITE ? "enterWrite" : "enterRead", bound.paramName);
+        }
+        // 字典编码的字符串表，整个读写(包括嵌套对象)共用
+        boolean stringTable = !generation.sizing && !generation.buffer && !isCustomized && hasStringDictionary(classWrapper);
+        if (stringTable) {
+            methodSpec.addStatement("$T $L = $T.enter($L)", StringTable.class, STRING_TABLE, StringTable.class, bound.paramName);
+        }
+        if (generation.referenceElement != null || stringTable) {
+            methodSpec.beginControlFlow("try");
+        }
 
         try {
             // 看父类是否实现了Serializable接口
@@ -165,55 +547,2057 @@ public class SerializerProcessor extends AbstractProcessor {
                 if (superClass != null) {
                     TypeMirror type = types.erasure(superClass);
                     String superClassName = type.toString() + "IOSerializer";
-                    methodSpec.addStatement("$T.$L($L, $L)", ClassName.bestGuess(superClassName), bound.serializerExec, bound.paramName, "instance");
+                    if (generation.buffer && !hasBuffer(superClass)) {
+                        generation.unsupported = "父类没有ByteBuffer读写";
+                    } else if (!generation.sizing) {
+                        beginBlock(methodSpec, classWrapper, bound, "super");
+                        String superExec = generation.reusing && hasReadInto(superClass) ? READ_INTO : bound.serializerExec;
+                        methodSpec.addStatement("$T.$L($L, $L)", ClassName.bestGuess(superClassName), superExec, streamName(bound), "instance");
+                        endBlock(methodSpec, classWrapper, bound, "super");
+                    } else if (hasSizeOf(superClass)) {
+                        if (tagged) {
+                            writeKey(methodSpec, TaggedFields.SUPER_KEY);
+                        }
+                        beginBlock(methodSpec, classWrapper, bound, "super");
+                        methodSpec.addStatement("$L += $T.$L(instance)", SIZE, ClassName.bestGuess(superClassName), SIZE_OF);
+                    } else {
+                        generation.unsupported = "父类没有sizeOf";
+                    }
                 }
             }
         } catch (Exception e) {
             messager.printMessage(Diagnostic.Kind.WARNING, classWrapper.getSimpleName() + " : " + e.getMessage());
         }
-        // 自定义复写了writeTo readFrom的，序列化直接调用对象的writeTo readFrom
-        if (isCustomized) {
-            methodSpec.addStatement("instance.$L($L)", bound.accessName, bound.paramName);
-        } else {
-            // read write 字段
-            classWrapper.forEach(variableWrapper -> {
-                TypeMirror type = variableWrapper.element.asType();
-                String variable = variableWrapper.variable.name.toString();
-                // Array、Collection、Map
-                if (isArray(type) || isCollection(type) || isMap(type)) {
-                    serializeVariable(methodSpec, variableWrapper, bound);
-                } else if (isPrimitiveType(type)){
-                    if (bound == SerializerBound.WRITE) {
-                        Class<?> clazz = getPrimitiveClass(type);
-                        String get = Boolean.class == clazz || boolean.class == clazz ? "is" : "get";
-                        String getVariable = "instance." + get + Utils.toUpperCaseFirst(variable) + "()";
-                        writeVariable(methodSpec, variableWrapper.element.asType(), getVariable);
-                    } else {
-                        if (isWrapper(type)) {
-                            // 先读一个标志
-                            methodSpec.beginControlFlow("if ($L)", doReadAnPrimitive(boolean.class));
-                            // 如果不为null则继续读
-                            methodSpec.addStatement("instance.set$L($L)", Utils.toUpperCaseFirst(variable), doReadAnPrimitive(getPrimitiveClass(type)));
-                            methodSpec.nextControlFlow("else");
-                            methodSpec.addStatement("instance.set$L(null)", Utils.toUpperCaseFirst(variable));
-                            methodSpec.endControlFlow();
-                        } else {
-                            methodSpec.addStatement("instance.set$L($L)", Utils.toUpperCaseFirst(variable), doReadAnPrimitive(getPrimitiveClass(type)));
-                        }
-                    }
-                } else if (isSerializable(type)){
-                    serializeVariable(methodSpec, variableWrapper, bound);
-                } else {
-                    if (bound == SerializerBound.WRITE) {
-                        String getVariable = "instance.get" + Utils.toUpperCaseFirst(variable) + "()";
-                        writeVariable(methodSpec, variableWrapper.element.asType(), getVariable);
-                    } else {
-                        methodSpec.addStatement("instance.set$L($L.$L())", Utils.toUpperCaseFirst(variable), SerializerBound.READ.paramName, SerializerBound.READ.serializerExec);
-                    }
+        // 自定义复写了writeTo readFrom的，序列化直接调用对象的writeTo readFrom
+        if (isCustomized) {
+            if (generation.sizing || generation.buffer) {
+                generation.unsupported = "自定义序列化";
+            } else {
+                methodSpec.addStatement("instance.$L($L)", bound.accessName, bound.paramName);
+            }
+        } else {
+            generation.varint = false;
+            generation.primitiveCollection = false;
+            // 空值位图，带标签的格式按字段读写，不用位图
+            generation.nullBitmap = SerializerOption.NULL_BITMAP.isEnabled(options, classWrapper.element) && !tagged ? makeNullBitmap(methodSpec, classWrapper, bound) : null;
+            Map<String, Integer> taggedKeys = tagged ? getTaggedKeys(classWrapper) : null;
+            // read write 字段
+            classWrapper.forEach(variableWrapper -> {
+                TypeMirror type = variableWrapper.element.asType();
+                String variable = variableWrapper.variable.name.toString();
+                generation.varint = SerializerOption.VARINT.isEnabled(options, variableWrapper.element);
+                generation.primitiveCollection = SerializerOption.PRIMITIVE_COLLECTION.isEnabled(options, variableWrapper.element);
+                generation.stringDictionary = !generation.buffer && SerializerOption.STRING_DICTIONARY.isEnabled(options, variableWrapper.element);
+                generation.stringIntern = SerializerOption.STRING_INTERN.isEnabled(options, variableWrapper.element);
+                generation.inlineElement = SerializerOption.INLINE_NESTED.isEnabled(options, variableWrapper.element) ? classWrapper.element : null;
+                boolean block = isBlock(type, tagged);
+                if (generation.sizing && tagged) {
+                    writeKey(methodSpec, taggedKeys.get(variable));
+                }
+                if (block) {
+                    beginBlock(methodSpec, classWrapper, bound, variable);
+                }
+                if (tagged) {
+                    serializeTaggedField(methodSpec, variableWrapper, bound);
+                } else {
+                    serializeField(methodSpec, variableWrapper, bound);
+                }
+                if (block) {
+                    endBlock(methodSpec, classWrapper, bound, variable);
+                }
+            });
+            generation.nullBitmap = null;
+            generation.nullBitmapField = null;
+            generation.varint = false;
+            generation.primitiveCollection = false;
+            generation.stringDictionary = false;
+            generation.stringIntern = false;
+            generation.inlineElement = null;
+        }
+        if (generation.referenceElement != null || stringTable) {
+            methodSpec.nextControlFlow("finally");
+            if (stringTable) {
+                methodSpec.addStatement("$L.exit()", STRING_TABLE);
+            }
+            if (generation.referenceElement != null) {
+                methodSpec.addStatement("$L.exit()", REFERENCE_TABLE);
+            }
+            methodSpec.endControlFlow();
+            generation.referenceElement = null;
+        }
+        endMetrics(methodSpec, classWrapper, bound);
+        if (generation.sizing) {
+            methodSpec.addStatement("return $L", SIZE);
+        }
+        return methodSpec;
+    }
+
+    /**
+     * 是否记录运行指标，只有read write(包括ByteBuffer的)记录
+     * @param classWrapper 类包装
+     * @return 是 true
+     */
+    private boolean isMetrics(JavaClassWrapper classWrapper) {
+        return !generation.sizing && !generation.reusing && generation.streamingField == null && SerializerOption.METRICS.isEnabled(options, classWrapper.element);
+    }
+
+    /**
+     * 运行指标开始，方法体包在try中，提前return和异常也能退出
+     * @param methodSpec 方法定义
+     * @param classWrapper 类包装
+     * @param bound 序列化方向
+     */
+    private void beginMetrics(MethodSpec.Builder methodSpec, JavaClassWrapper classWrapper, SerializerBound bound) {
+        if (!isMetrics(classWrapper)) {
+            return;
+        }
+        methodSpec.addStatement("long $L = $L.$L()", METRICS_START, METRICS, bound == SerializerBound.WRITE ? "enterWrite" : "enterRead");
+        if (generation.buffer) {
+            methodSpec.addStatement("int $L = $L.position()", METRICS_POSITION, BUFFER);
+        }
+        methodSpec.beginControlFlow("try");
+    }
+
+    /**
+     * 运行指标结束，ByteBuffer读写按position的变化记字节数
+     * @param methodSpec 方法定义
+     * @param classWrapper 类包装
+     * @param bound 序列化方向
+     * @return 方法定义
+     */
+    private MethodSpec.Builder endMetrics(MethodSpec.Builder methodSpec, JavaClassWrapper classWrapper, SerializerBound bound) {
+        if (!isMetrics(classWrapper)) {
+            return methodSpec;
+        }
+        String exit = bound == SerializerBound.WRITE ? "exitWrite" : "exitRead";
+        methodSpec.nextControlFlow("finally");
+        if (generation.buffer) {
+            methodSpec.addStatement("$L.$L($L, $L.position() - $L)", METRICS, exit, METRICS_START, BUFFER, METRICS_POSITION);
+        } else {
+            methodSpec.addStatement("$L.$L($L)", METRICS, exit, METRICS_START);
+        }
+        methodSpec.endControlFlow();
+        return methodSpec;
+    }
+
+    /**
+     * 读写一个字段
+     * @param statements 方法体stats
+     * @param variableWrapper 变量包装
+     * @param bound 序列化方向
+     */
+    private void serializeField(MethodSpec.Builder statements, VariableWrapper variableWrapper, SerializerBound bound) {
+        TypeMirror type = variableWrapper.element.asType();
+        String variable = variableWrapper.variable.name.toString();
+        generation.nullBitmapField = variableWrapper.element;
+        if (generation.parallel && isParallelField(variableWrapper)) {
+            serializeParallel(statements, variableWrapper, bound);
+            return;
+        }
+        if (isCompressField(variableWrapper)) {
+            serializeCompressed(statements, variableWrapper, bound);
+            return;
+        }
+        // 位图模式下可空字段已经取到局部变量中了
+        if (bound == SerializerBound.WRITE && inNullBitmap(variable)) {
+            writeVariable(statements, type, NullBitmap.localName(variableWrapper.element));
+        } else if (isArray(type) || isCollection(type) || isMap(type)) {
+            // Array、Collection、Map
+            serializeVariable(statements, variableWrapper, bound);
+        } else if (isPrimitiveType(type)){
+            if (bound == SerializerBound.WRITE) {
+                writeVariable(statements, variableWrapper.element.asType(), getVariable(variableWrapper));
+            } else {
+                if (isWrapper(type)) {
+                    // 先读一个标志
+                    statements.beginControlFlow("if ($L)", readNullFlag(variable));
+                    // 如果不为null则继续读
+                    statements.addStatement(setVariable(variableWrapper, doReadAnPrimitive(getPrimitiveClass(type))));
+                    statements.nextControlFlow("else");
+                    statements.addStatement(setVariable(variableWrapper, "null"));
+                    statements.endControlFlow();
+                } else {
+                    statements.addStatement(setVariable(variableWrapper, doReadAnPrimitive(getPrimitiveClass(type))));
+                }
+            }
+        } else if (isSerializable(type)){
+            serializeVariable(statements, variableWrapper, bound);
+        } else {
+            if (bound == SerializerBound.WRITE) {
+                writeVariable(statements, variableWrapper.element.asType(), getVariable(variableWrapper));
+            } else {
+                statements.addStatement(setVariable(variableWrapper, doReadObject()));
+            }
+        }
+    }
+
+    /**
+     * 生成sizeOf方法，与write走同样的字段展开，累加每一项写入的字节数
+     * @param classWrapper 类包装
+     * @return 方法定义，无法计算字节数时返回null(原因见unsupported)
+     */
+    private MethodSpec.Builder makeSizeOfMethodSpec(JavaClassWrapper classWrapper) {
+        // 父类先算好，避免生成过程中递归
+        TypeMirror superClass = findSerializableParentClass(classWrapper.element.asType());
+        if (superClass != null) {
+            hasSizeOf(superClass);
+        }
+        // 直接调用的嵌套对象也先算好，互相引用的先当作不支持
+        sizeOfMap.put(classWrapper.element.getQualifiedName().toString(), false);
+        classWrapper.forEach(variableWrapper -> {
+            if (SerializerOption.INLINE_NESTED.isEnabled(options, variableWrapper.element)) {
+                forEachNested(variableWrapper.element.asType(), nestedType -> {
+                    if (!types.asElement(nestedType).equals(classWrapper.element)) {
+                        hasSizeOf(nestedType);
+                    }
+                });
+            }
+        });
+        boolean isCustomized = classWrapper.hasMethodDecl(SerializerBound.WRITE.accessName, SerializerBound.WRITE.stream);
+        MethodSpec.Builder methodSpec;
+        generation.sizing = true;
+        generation.unsupported = null;
+        try {
+            methodSpec = makeReadWriteMethodSpec(classWrapper, SerializerBound.WRITE, isCustomized);
+        } finally {
+            generation.sizing = false;
+        }
+        sizeOfMap.put(classWrapper.element.getQualifiedName().toString(), generation.unsupported == null);
+        return generation.unsupported == null ? methodSpec : null;
+    }
+
+    /**
+     * 生成ByteBuffer读写方法，与流的读写走同样的字段展开
+     * @param classWrapper 类包装
+     * @param bound 序列化方向
+     * @return 方法定义，不支持时返回null(原因见unsupported)
+     */
+    private MethodSpec.Builder makeBufferMethodSpec(JavaClassWrapper classWrapper, SerializerBound bound) {
+        boolean isCustomized = classWrapper.hasMethodDecl(bound.accessName, bound.stream);
+        MethodSpec.Builder methodSpec;
+        generation.buffer = true;
+        generation.bufferElement = classWrapper.element;
+        generation.unsupported = null;
+        try {
+            methodSpec = makeReadWriteMethodSpec(classWrapper, bound, isCustomized);
+        } finally {
+            generation.buffer = false;
+            generation.bufferElement = null;
+        }
+        return generation.unsupported == null ? methodSpec : null;
+    }
+
+    /**
+     * 类的序列化类是否有ByteBuffer读写方法
+     * @param type 类型
+     * @return 有 true
+     */
+    private boolean hasBuffer(TypeMirror type) {
+        TypeElement element = (TypeElement) types.asElement(types.erasure(type));
+        // 自己引用自己，生成失败时整个方法都不会输出
+        if (element.equals(generation.bufferElement)) {
+            return true;
+        }
+        String qualifiedName = element.getQualifiedName().toString();
+        String reason = bufferMap.get(qualifiedName);
+        if (reason != null) {
+            return reason.isEmpty();
+        }
+        JavaClassWrapper classWrapper = javaSourceWrapper.get(element);
+        if (classWrapper == null) {
+            // 之前编译好的
+            TypeElement serializerElement = elements.getTypeElement(types.erasure(type).toString() + "IOSerializer");
+            TypeMirror bufferType = getTypeMirror(ByteBuffer.class);
+            boolean result = serializerElement != null && ElementFilter.methodsIn(serializerElement.getEnclosedElements()).stream()
+                    .anyMatch(method -> !method.getParameters().isEmpty() && types.isSameType(method.getParameters().get(0).asType(), bufferType));
+            bufferMap.put(qualifiedName, result ? Utils.EMPTY : "序列化类没有ByteBuffer读写");
+            return result;
+        }
+        if (!SerializerOption.BYTE_BUFFER.isEnabled(options, element)) {
+            bufferMap.put(qualifiedName, "未开启" + SerializerOption.BYTE_BUFFER.key);
+            return false;
+        }
+        // 互相引用的先当作不支持
+        bufferMap.put(qualifiedName, "循环引用");
+        // 嵌套生成，换成新的生成状态
+        GenerationContext saved = pushGeneration();
+        try {
+            reason = makeBufferMethodSpec(classWrapper, SerializerBound.WRITE) == null ? generation.unsupported
+                    : makeBufferMethodSpec(classWrapper, SerializerBound.READ) == null ? generation.unsupported : Utils.EMPTY;
+        } finally {
+            generation = saved;
+        }
+        bufferMap.put(qualifiedName, reason);
+        return reason.isEmpty();
+    }
+
+    /**
+     * 换成新的生成状态，嵌套生成结束后要在finally中换回返回的原状态
+     * @return 原来的生成状态
+     */
+    private GenerationContext pushGeneration() {
+        GenerationContext saved = generation;
+        generation = new GenerationContext();
+        return saved;
+    }
+
+    /**
+     * 读写方法中流(缓冲区)的参数名
+     * @param bound 序列化方向
+     * @return 参数名
+     */
+    private String streamName(SerializerBound bound) {
+        return generation.buffer ? BUFFER : bound.paramName;
+    }
+
+    /**
+     * 类的序列化类是否有sizeOf方法
+     * @param type 类型
+     * @return 有 true
+     */
+    private boolean hasSizeOf(TypeMirror type) {
+        TypeElement element = (TypeElement) types.asElement(type);
+        String qualifiedName = element.getQualifiedName().toString();
+        Boolean result = sizeOfMap.get(qualifiedName);
+        if (result != null) {
+            return result;
+        }
+        JavaClassWrapper classWrapper = javaSourceWrapper.get(element);
+        if (classWrapper != null) {
+            // 本轮生成的，嵌套生成，换成新的生成状态
+            GenerationContext saved = pushGeneration();
+            try {
+                result = SerializerOption.SIZE_OF.isEnabled(options, element) && makeSizeOfMethodSpec(classWrapper) != null;
+            } finally {
+                generation = saved;
+            }
+        } else {
+            // 之前编译好的
+            TypeElement serializerElement = elements.getTypeElement(types.erasure(type).toString() + "IOSerializer");
+            result = serializerElement != null && ElementFilter.methodsIn(serializerElement.getEnclosedElements()).stream()
+                    .anyMatch(method -> method.getSimpleName().contentEquals(SIZE_OF));
+        }
+        sizeOfMap.put(qualifiedName, result);
+        return result;
+    }
+
+    /**
+     * 基础类型定长写入的字节数
+     * @param primitiveClass 基础类型类
+     * @return 字节数，变长的(字符串、变长整数)返回-1
+     */
+    private int getFixedSize(Class<?> primitiveClass) {
+        if (generation.varint && (int.class == primitiveClass || long.class == primitiveClass)) {
+            return -1;
+        }
+        return Utils.PRIMITIVE_SIZE_MAP.getOrDefault(primitiveClass, -1);
+    }
+
+    /**
+     * 生成空值位图，把所有可空字段的null标记合并写在最前面
+     * @param statements 方法体stats
+     * @param classWrapper 类包装
+     * @param bound 序列化方向
+     * @return 空值位图，没有可空字段时返回null
+     */
+    private NullBitmap makeNullBitmap(MethodSpec.Builder statements, JavaClassWrapper classWrapper, SerializerBound bound) {
+        NullBitmap bitmap = collectNullBitmap(classWrapper);
+        if (bitmap == null) {
+            return null;
+        }
+        if (bound == SerializerBound.WRITE) {
+            // 可空字段先取出来
+            classWrapper.forEach(variableWrapper -> {
+                if (bitmap.contains(variableWrapper.element)) {
+                    statements.addStatement("$T $L = $L", ClassName.get(variableWrapper.element.asType()), NullBitmap.localName(variableWrapper.element), getVariable(variableWrapper));
+                }
+            });
+            // 位图是定长的
+            if (generation.sizing) {
+                for (int word = 0; word < bitmap.wordCount(); ++word) {
+                    writePrimitive(statements, bitmap.wordClass(word), bitmap.wordName(word));
+                }
+                return bitmap;
+            }
+            for (int word = 0; word < bitmap.wordCount(); ++word) {
+                statements.addStatement("$T $L = 0", bitmap.wordLocalClass(word), bitmap.wordName(word));
+            }
+            // 不为null的置位
+            bitmap.forEach((element, bit) -> {
+                statements.beginControlFlow("if ($L != null)", NullBitmap.localName(element));
+                statements.addStatement("$L |= $L", bitmap.wordName(bit / NullBitmap.WORD_BITS), bitmap.mask(bit));
+                statements.endControlFlow();
+            });
+            for (int word = 0; word < bitmap.wordCount(); ++word) {
+                Class<?> wordClass = bitmap.wordClass(word);
+                writePrimitive(statements, wordClass, "(" + wordClass.getSimpleName() + ") " + bitmap.wordName(word));
+            }
+        } else {
+            for (int word = 0; word < bitmap.wordCount(); ++word) {
+                statements.addStatement("$T $L = $L", bitmap.wordLocalClass(word), bitmap.wordName(word), doReadAnPrimitive(bitmap.wordClass(word)));
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * 给可空字段分配空值位图的位
+     * @param classWrapper 类包装
+     * @return 空值位图，没有可空字段时返回null
+     */
+    private NullBitmap collectNullBitmap(JavaClassWrapper classWrapper) {
+        NullBitmap bitmap = new NullBitmap();
+        classWrapper.forEach(variableWrapper -> {
+            if (hasNullFlag(variableWrapper.element.asType())) {
+                bitmap.add(variableWrapper.element);
+            }
+        });
+        return bitmap.isEmpty() ? null : bitmap;
+    }
+
+    /**
+     * 获取字段的访问表达式 instance.getXxx() / instance.isXxx()，直接访问模式下为 instance.xxx
+     * @param variableWrapper 变量包装
+     * @return 访问表达式
+     */
+    private String getVariable(VariableWrapper variableWrapper) {
+        if (isDirectAccess(variableWrapper)) {
+            return "instance." + variableWrapper.variable.name;
+        }
+        return "instance." + getterName(variableWrapper) + "()";
+    }
+
+    /**
+     * 字段的getter方法名 getXxx / isXxx
+     * @param variableWrapper 变量包装
+     * @return 方法名
+     */
+    private String getterName(VariableWrapper variableWrapper) {
+        TypeMirror type = variableWrapper.element.asType();
+        String get = "get";
+        if (isPrimitiveType(type)) {
+            Class<?> clazz = getPrimitiveClass(type);
+            get = Boolean.class == clazz || boolean.class == clazz ? "is" : "get";
+        }
+        return get + Utils.toUpperCaseFirst(variableWrapper.variable.name.toString());
+    }
+
+    /**
+     * 获取字段的赋值语句 instance.setXxx(value)，直接访问模式下为 instance.xxx = value
+     * @param variableWrapper 变量包装
+     * @param value 值
+     * @return 赋值语句
+     */
+    private CodeBlock setVariable(VariableWrapper variableWrapper, Object value) {
+        String variable = variableWrapper.variable.name.toString();
+        if (isDirectAccess(variableWrapper)) {
+            return CodeBlock.of("instance.$L = $L", variable, value);
+        }
+        return CodeBlock.of("instance.set$L($L)", Utils.toUpperCaseFirst(variable), value);
+    }
+
+    /**
+     * 是否直接访问字段，序列化辅助类和字段所在类同包，非private的字段都能直接访问
+     * @param variableWrapper 变量包装
+     * @return 是 true
+     */
+    private boolean isDirectAccess(VariableWrapper variableWrapper) {
+        Element element = variableWrapper.element;
+        return !element.getModifiers().contains(Modifier.PRIVATE) && SerializerOption.FIELD_ACCESS.isEnabled(options, element);
+    }
+
+    /**
+     * 该类型序列化时是否带null标记
+     * @param type 类型
+     * @return 是 true
+     */
+    private boolean hasNullFlag(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return false;
+        }
+        if (isArray(type) || isCollection(type) || isMap(type) || isWrapper(type)) {
+            return true;
+        }
+        return isSerializable(type) && !isAbstract(type);
+    }
+
+    /**
+     * 写一个null标记，位图中已有的变量不再单独写
+     * @param statements 方法体stats
+     * @param variableName 变量
+     */
+    private void writeNullFlag(MethodSpec.Builder statements, String variableName) {
+        if (inNullBitmap(variableName)) {
+            return;
+        }
+        writePrimitive(statements, boolean.class, variableName + " != null");
+    }
+
+    /**
+     * 变量是否是当前字段本身并且在空值位图中，字段的元素、键值等局部变量即使与别的字段同名也不算
+     * @param variable 变量，读时是字段名，写时是取出来的局部变量名
+     * @return 是 true
+     */
+    private boolean inNullBitmap(String variable) {
+        return generation.nullBitmap != null && generation.nullBitmapField != null && generation.nullBitmap.contains(generation.nullBitmapField)
+                && (variable.equals(generation.nullBitmapField.getSimpleName().toString()) || variable.equals(NullBitmap.localName(generation.nullBitmapField)));
+    }
+
+    /**
+     * 读一个null标记
+     * @param variable 变量
+     * @return 不为null的判断表达式
+     */
+    private CodeBlock readNullFlag(String variable) {
+        if (inNullBitmap(variable)) {
+            int bit = generation.nullBitmap.bitOf(generation.nullBitmapField);
+            return CodeBlock.of("($L & $L) != 0", generation.nullBitmap.wordName(bit / NullBitmap.WORD_BITS), generation.nullBitmap.mask(bit));
+        }
+        return doReadAnPrimitive(boolean.class);
+    }
+
+    /**
+     * 开启bufferBlocks、带标签的格式下，ByteBuffer格式中的父类部分、数组、集合、Map、嵌套对象字段都是带长度前缀的块
+     * @param classWrapper 类包装
+     * @return 是 true
+     */
+    private boolean hasBlocks(JavaClassWrapper classWrapper) {
+        return (generation.buffer || generation.sizing) && SerializerOption.BYTE_BUFFER.isEnabled(options, classWrapper.element)
+                && (SerializerOption.BUFFER_BLOCKS.isEnabled(options, classWrapper.element) || SerializerOption.TAGGED.isEnabled(options, classWrapper.element));
+    }
+
+    /**
+     * 该类型的字段是否写成块
+     * @param type 类型
+     * @param tagged 是否带标签的格式，包装类型、字符串也写成块
+     * @return 是 true
+     */
+    private boolean isBlock(TypeMirror type, boolean tagged) {
+        if (tagged) {
+            return getWireType(type) == TaggedFields.BLOCK;
+        }
+        if (isArray(type) || isCollection(type) || isMap(type)) {
+            return true;
+        }
+        return !isPrimitiveType(type) && isSerializable(type) && !isAbstract(type);
+    }
+
+    /**
+     * 块开始，写时先空出长度前缀，读时跳过长度前缀
+     * @param statements 方法体stats
+     * @param classWrapper 类包装
+     * @param bound 序列化方向
+     * @param name 块名
+     */
+    private void beginBlock(MethodSpec.Builder statements, JavaClassWrapper classWrapper, SerializerBound bound, String name) {
+        if (!hasBlocks(classWrapper)) {
+            return;
+        }
+        if (generation.sizing) {
+            statements.addStatement("$L += $L", SIZE, BLOCK_PREFIX);
+        } else if (bound == SerializerBound.WRITE) {
+            statements.addStatement("int $LStart = $T.reserve($L, $L)", name, ByteBuffers.class, BUFFER, BLOCK_PREFIX);
+        } else {
+            statements.addStatement("$L.position($L.position() + $L)", BUFFER, BUFFER, BLOCK_PREFIX);
+        }
+    }
+
+    /**
+     * 块结束，写时回填长度前缀
+     * @param statements 方法体stats
+     * @param classWrapper 类包装
+     * @param bound 序列化方向
+     * @param name 块名
+     */
+    private void endBlock(MethodSpec.Builder statements, JavaClassWrapper classWrapper, SerializerBound bound, String name) {
+        if (!generation.sizing && bound == SerializerBound.WRITE && hasBlocks(classWrapper)) {
+            statements.addStatement("$L.putInt($LStart - $L, $L.position() - $LStart)", BUFFER, name, BLOCK_PREFIX, BUFFER, name);
+        }
+    }
+
+    /**
+     * ByteBuffer格式是否带标签
+     * @param classWrapper 类包装
+     * @return 是 true
+     */
+    private boolean isTagged(JavaClassWrapper classWrapper) {
+        return (generation.buffer || generation.sizing) && SerializerOption.TAGGED.isEnabled(options, classWrapper.element)
+                && SerializerOption.BYTE_BUFFER.isEnabled(options, classWrapper.element);
+    }
+
+    /**
+     * 字段值的类型，非null的基础类型定长或变长写，字符串带长度前缀写，其余都写成块
+     * @param type 类型
+     * @return 值类型
+     */
+    private int getWireType(TypeMirror type) {
+        if (String.class == getPrimitiveClass(type)) {
+            return TaggedFields.STRING;
+        }
+        if (type.getKind().isPrimitive()) {
+            Class<?> primitiveClass = getPrimitiveClass(type);
+            switch (getFixedSize(primitiveClass)) {
+                case Byte.BYTES:
+                    return TaggedFields.FIXED8;
+                case Short.BYTES:
+                    return TaggedFields.FIXED16;
+                case Integer.BYTES:
+                    return TaggedFields.FIXED32;
+                case Long.BYTES:
+                    return TaggedFields.FIXED64;
+                default:
+                    return TaggedFields.VARINT;
+            }
+        }
+        return TaggedFields.BLOCK;
+    }
+
+    /**
+     * 写一个键
+     * @param statements 方法体stats
+     * @param key 键
+     */
+    private void writeKey(MethodSpec.Builder statements, int key) {
+        if (generation.sizing) {
+            statements.addStatement("$L += $L", SIZE, VarInts.sizeOfVarInt(key));
+        } else {
+            statements.addStatement("$T.writeVarInt($L, $L)", VarInts.class, BUFFER, key);
+        }
+    }
+
+    /**
+     * 带标签的格式下读写一个字段，字符串写成 变长int(UTF-8字节数 + 1，0表示null) + 内容，不用null标记和块
+     * @param statements 方法体stats
+     * @param variableWrapper 变量包装
+     * @param bound 序列化方向
+     */
+    private void serializeTaggedField(MethodSpec.Builder statements, VariableWrapper variableWrapper, SerializerBound bound) {
+        if (getWireType(variableWrapper.element.asType()) != TaggedFields.STRING) {
+            serializeField(statements, variableWrapper, bound);
+        } else if (generation.sizing) {
+            String variable = variableWrapper.variable.name.toString();
+            statements.addStatement("$T $L = $L", String.class, variable, getVariable(variableWrapper));
+            statements.addStatement("$L += $L == null ? 1 : $T.sizeOfString($L)", SIZE, variable, Sizes.class, variable);
+        } else if (bound == SerializerBound.WRITE) {
+            statements.addStatement("$T.putNullableString($L, $L)", ByteBuffers.class, BUFFER, getVariable(variableWrapper));
+        } else {
+            statements.addStatement(setVariable(variableWrapper, CodeBlock.of("$T.getNullableString($L)", ByteBuffers.class, BUFFER)));
+        }
+    }
+
+    /**
+     * 生成带标签的ByteBuffer读写
+     * 写: 消息字节数 + 布局指纹 + 父类块 + 每个字段(变长int键 + 值)
+     * 读: 布局指纹一致时按位置读，只跳过键和块长度；不一致时按键分派，不认识的键按值类型跳过，缺少的字段保持原值
+     * @param methodSpec 方法定义
+     * @param classWrapper 类包装
+     * @param bound 序列化方向
+     * @return 方法定义
+     */
+    private MethodSpec.Builder makeTaggedMethodSpec(MethodSpec.Builder methodSpec, JavaClassWrapper classWrapper, SerializerBound bound) {
+        Map<String, Integer> keyMap = getTaggedKeys(classWrapper);
+        TypeMirror superClass = findSerializableParentClass(classWrapper.element.asType());
+        String superClassName = superClass == null ? null : types.erasure(superClass).toString() + "IOSerializer";
+        if (superClass != null && !hasBuffer(superClass)) {
+            generation.unsupported = "父类没有ByteBuffer读写";
+            return methodSpec;
+        }
+        // 父类块在两条路径上都按位置读，父类自己要能识别布局变化
+        if (superClass != null && !isTaggedType(superClass)) {
+            generation.unsupported = "父类不是带标签的格式";
+            return methodSpec;
+        }
+        if (bound == SerializerBound.WRITE) {
+            beginBlock(methodSpec, classWrapper, bound, TAGGED_MESSAGE);
+            methodSpec.addStatement("$L.putLong($L)", BUFFER, TAGGED_SCHEMA);
+            if (superClass != null) {
+                writeKey(methodSpec, TaggedFields.SUPER_KEY);
+                beginBlock(methodSpec, classWrapper, bound, "super");
+                methodSpec.addStatement("$T.$L($L, $L)", ClassName.bestGuess(superClassName), bound.serializerExec, BUFFER, "instance");
+                endBlock(methodSpec, classWrapper, bound, "super");
+            }
+            classWrapper.forEach(variableWrapper -> {
+                String variable = variableWrapper.variable.name.toString();
+                generation.varint = SerializerOption.VARINT.isEnabled(options, variableWrapper.element);
+                generation.primitiveCollection = SerializerOption.PRIMITIVE_COLLECTION.isEnabled(options, variableWrapper.element);
+                boolean block = isBlock(variableWrapper.element.asType(), true);
+                writeKey(methodSpec, keyMap.get(variable));
+                if (block) {
+                    beginBlock(methodSpec, classWrapper, bound, variable);
+                }
+                serializeTaggedField(methodSpec, variableWrapper, bound);
+                if (block) {
+                    endBlock(methodSpec, classWrapper, bound, variable);
+                }
+            });
+            endBlock(methodSpec, classWrapper, bound, TAGGED_MESSAGE);
+        } else {
+            // 局部变量带前缀，不会和字段名的局部变量冲突
+            methodSpec.addStatement("int tagged_len = $L.getInt()", BUFFER);
+            methodSpec.addStatement("int tagged_end = $L.position() + tagged_len", BUFFER);
+            // 快速路径，布局一致时按位置读
+            methodSpec.beginControlFlow("if ($L.getLong() == $L)", BUFFER, TAGGED_SCHEMA);
+            if (superClass != null) {
+                methodSpec.addStatement("$L.position($L.position() + $L)", BUFFER, BUFFER, VarInts.sizeOfVarInt(TaggedFields.SUPER_KEY) + BLOCK_PREFIX);
+                methodSpec.addStatement("$T.$L($L, $L)", ClassName.bestGuess(superClassName), bound.serializerExec, BUFFER, "instance");
+            }
+            classWrapper.forEach(variableWrapper -> {
+                generation.varint = SerializerOption.VARINT.isEnabled(options, variableWrapper.element);
+                generation.primitiveCollection = SerializerOption.PRIMITIVE_COLLECTION.isEnabled(options, variableWrapper.element);
+                // 键是常量，字节数生成时就知道
+                int skip = VarInts.sizeOfVarInt(keyMap.get(variableWrapper.variable.name.toString()))
+                        + (isBlock(variableWrapper.element.asType(), true) ? BLOCK_PREFIX : 0);
+                methodSpec.addStatement("$L.position($L.position() + $L)", BUFFER, BUFFER, skip);
+                serializeTaggedField(methodSpec, variableWrapper, bound);
+            });
+            methodSpec.addStatement("return");
+            methodSpec.endControlFlow();
+            // 布局不一致时按键分派
+            methodSpec.beginControlFlow("while ($L.position() < tagged_end)", BUFFER);
+            methodSpec.addStatement("int tagged_key = $T.readVarInt($L)", VarInts.class, BUFFER);
+            methodSpec.beginControlFlow("switch (tagged_key)");
+            if (superClass != null) {
+                methodSpec.beginControlFlow("case $L:", TaggedFields.SUPER_KEY);
+                methodSpec.addStatement("$L.position($L.position() + $L)", BUFFER, BUFFER, BLOCK_PREFIX);
+                methodSpec.addStatement("$T.$L($L, $L)", ClassName.bestGuess(superClassName), bound.serializerExec, BUFFER, "instance");
+                methodSpec.addStatement("break");
+                methodSpec.endControlFlow();
+            }
+            classWrapper.forEach(variableWrapper -> {
+                generation.varint = SerializerOption.VARINT.isEnabled(options, variableWrapper.element);
+                generation.primitiveCollection = SerializerOption.PRIMITIVE_COLLECTION.isEnabled(options, variableWrapper.element);
+                methodSpec.beginControlFlow("case $L:", keyMap.get(variableWrapper.variable.name.toString()));
+                if (isBlock(variableWrapper.element.asType(), true)) {
+                    methodSpec.addStatement("$L.position($L.position() + $L)", BUFFER, BUFFER, BLOCK_PREFIX);
+                }
+                serializeTaggedField(methodSpec, variableWrapper, bound);
+                methodSpec.addStatement("break");
+                methodSpec.endControlFlow();
+            });
+            methodSpec.addCode("default:\n$>");
+            methodSpec.addStatement("$T.skip($L, tagged_key)", TaggedFields.class, BUFFER);
+            methodSpec.addCode("$<");
+            methodSpec.endControlFlow();
+            methodSpec.endControlFlow();
+        }
+        generation.varint = false;
+        generation.primitiveCollection = false;
+        return methodSpec;
+    }
+
+    /**
+     * 带标签格式的字段键 字段名 -> 键，标签冲突时报错
+     * @param classWrapper 类包装
+     * @return 键
+     */
+    private Map<String, Integer> getTaggedKeys(JavaClassWrapper classWrapper) {
+        Map<String, Integer> keyMap = new LinkedHashMap<>();
+        classWrapper.forEach(variableWrapper -> {
+            String variable = variableWrapper.variable.name.toString();
+            generation.varint = SerializerOption.VARINT.isEnabled(options, variableWrapper.element);
+            int key = TaggedFields.key(Utils.fieldTag(variable), getWireType(variableWrapper.element.asType()));
+            if (keyMap.containsValue(key)) {
+                printError(classWrapper.getSimpleName(), "字段标签冲突，请改名! Variable: " + variable);
+            }
+            keyMap.put(variable, key);
+        });
+        generation.varint = false;
+        return keyMap;
+    }
+
+    /**
+     * 带标签格式的布局指纹，包括每个字段的键、类型、编码和父类，父类增删时也会变化
+     * @param classWrapper 类包装
+     * @return 指纹
+     */
+    private long getTaggedSchema(JavaClassWrapper classWrapper) {
+        StringBuilder layout = new StringBuilder();
+        Map<String, Integer> keyMap = getTaggedKeys(classWrapper);
+        classWrapper.forEach(variableWrapper -> {
+            boolean fieldVarint = SerializerOption.VARINT.isEnabled(options, variableWrapper.element);
+            layout.append(keyMap.get(variableWrapper.variable.name.toString())).append(' ')
+                    .append(variableWrapper.element.asType()).append(' ').append(fieldVarint).append(';');
+        });
+        TypeMirror superClass = findSerializableParentClass(classWrapper.element.asType());
+        layout.append("super ").append(superClass == null ? "none" : types.erasure(superClass).toString());
+        return Long.parseUnsignedLong(Utils.fingerprint(layout.toString()), 16);
+    }
+
+    /**
+     * 类的ByteBuffer格式是否带标签，之前编译好的看序列化类有没有布局指纹常量
+     * @param type 类型
+     * @return 是 true
+     */
+    private boolean isTaggedType(TypeMirror type) {
+        TypeElement element = (TypeElement) types.asElement(types.erasure(type));
+        if (javaSourceWrapper.get(element) != null) {
+            return SerializerOption.TAGGED.isEnabled(options, element) && SerializerOption.BYTE_BUFFER.isEnabled(options, element);
+        }
+        TypeElement serializerElement = elements.getTypeElement(types.erasure(type).toString() + "IOSerializer");
+        return serializerElement != null && ElementFilter.fieldsIn(serializerElement.getEnclosedElements()).stream()
+                .anyMatch(field -> field.getSimpleName().contentEquals(TAGGED_SCHEMA));
+    }
+
+    /**
+     * 生成增量读写 writeDelta(outputStream, instance, dirtyMask)、readDelta(inputStream, instance)
+     * 只读写脏标记中置位的字段，每个字段的编码与全量读写相同(不用空值位图)，掩码按变长整数写在最前面，
+     * 每个字段的掩码生成为常量 DIRTY_XXX，只包含本类声明的字段；
+     * readDelta通过setter写字段，实例是脏标记跟踪子类时读完清掉读过的字段的脏标记，读到的值不算本地修改
+     * @param classWrapper 类包装
+     */
+    private void makeDeltaMethodSpec(JavaClassWrapper classWrapper) {
+        Result<Integer> bit = new Result<>(0);
+        classWrapper.forEach(variableWrapper -> {
+            classWrapper.classSpec.addField(FieldSpec.builder(long.class, getDirtyName(variableWrapper), Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("1L << $L", bit.value++)
+                    .build());
+        });
+        for (SerializerBound bound : new SerializerBound[]{SerializerBound.WRITE, SerializerBound.READ}) {
+            MethodSpec.Builder methodSpec = MethodSpec.methodBuilder(bound.serializerExec + "Delta")
+                    .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                    .returns(void.class)
+                    .addException(IOException.class)
+                    .addParameter(bound.stream, bound.paramName)
+                    .addParameter(ClassName.get(classWrapper.element), "instance");
+            if (bound == SerializerBound.WRITE) {
+                methodSpec.addParameter(long.class, DIRTY_MASK);
+                methodSpec.addStatement("$T.writeVarLong($L, $L)", VarInts.class, bound.paramName, DIRTY_MASK);
+            } else {
+                methodSpec.addStatement("long $L = $T.readVarLong($L)", DIRTY_MASK, VarInts.class, bound.paramName);
+            }
+            boolean stringTable = hasStringDictionary(classWrapper);
+            if (stringTable) {
+                methodSpec.addStatement("$T $L = $T.enter($L)", StringTable.class, STRING_TABLE, StringTable.class, bound.paramName);
+                methodSpec.beginControlFlow("try");
+            }
+            classWrapper.forEach(variableWrapper -> {
+                generation.varint = SerializerOption.VARINT.isEnabled(options, variableWrapper.element);
+                generation.primitiveCollection = SerializerOption.PRIMITIVE_COLLECTION.isEnabled(options, variableWrapper.element);
+                generation.stringDictionary = SerializerOption.STRING_DICTIONARY.isEnabled(options, variableWrapper.element);
+                generation.stringIntern = SerializerOption.STRING_INTERN.isEnabled(options, variableWrapper.element);
+                generation.inlineElement = SerializerOption.INLINE_NESTED.isEnabled(options, variableWrapper.element) ? classWrapper.element : null;
+                methodSpec.beginControlFlow("if (($L & $L) != 0)", DIRTY_MASK, getDirtyName(variableWrapper));
+                serializeField(methodSpec, variableWrapper, bound);
+                methodSpec.endControlFlow();
+            });
+            if (stringTable) {
+                methodSpec.nextControlFlow("finally");
+                methodSpec.addStatement("$L.exit()", STRING_TABLE);
+                methodSpec.endControlFlow();
+            }
+            if (bound == SerializerBound.READ && isTrackable(classWrapper.element)) {
+                ClassName tracked = ClassName.get(elements.getPackageOf(classWrapper.element).getQualifiedName().toString(), classWrapper.getSimpleName() + TRACKED);
+                methodSpec.beginControlFlow("if (instance instanceof $T)", tracked);
+                methodSpec.addStatement("(($T) instance).clearDirty($L)", tracked, DIRTY_MASK);
+                methodSpec.endControlFlow();
+            }
+            generation.varint = false;
+            generation.primitiveCollection = false;
+            generation.stringDictionary = false;
+            generation.stringIntern = false;
+            generation.inlineElement = null;
+            classWrapper.addMethodSpec(methodSpec);
+        }
+    }
+
+    /**
+     * 生成复用对象的读 readInto(inputStream, instance)，开启byteBuffer时还有 readInto(buffer, instance)，
+     * 字段原来的集合、Map清空后复用，长度一样的数组复用，ByteBuffer格式中类型一致的嵌套对象复用；
+     * 非泛型的具体类再生成从对象池取对象的 readPooled(inputStream, pool)
+     * @param classWrapper 类包装
+     */
+    private void makeReuseMethodSpec(JavaClassWrapper classWrapper) {
+        generation.reusing = true;
+        try {
+            classWrapper.addMethodSpec(makeReadWriteMethodSpec(classWrapper, SerializerBound.READ, false));
+            TypeElement element = classWrapper.element;
+            if (SerializerOption.BYTE_BUFFER.isEnabled(options, element) && !SerializerOption.TAGGED.isEnabled(options, element) && hasBuffer(element.asType())) {
+                MethodSpec.Builder bufferSpec = makeBufferMethodSpec(classWrapper, SerializerBound.READ);
+                if (bufferSpec != null) {
+                    classWrapper.addMethodSpec(bufferSpec);
+                }
+            }
+        } finally {
+            generation.reusing = false;
+        }
+        TypeElement element = classWrapper.element;
+        if (element.getModifiers().contains(Modifier.ABSTRACT) || !element.getTypeParameters().isEmpty()) {
+            return;
+        }
+        TypeName poolType = ParameterizedTypeName.get(ClassName.get(ObjectPool.class), ClassName.get(element));
+        classWrapper.addMethodSpec(MethodSpec.methodBuilder("readPooled")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(ClassName.get(element))
+                .addException(IOException.class)
+                .addParameter(SerializerBound.READ.stream, SerializerBound.READ.paramName)
+                .addParameter(poolType, "pool")
+                .addStatement("$T instance = pool.acquire()", ClassName.get(element))
+                .addStatement("$L($L, instance)", READ_INTO, SerializerBound.READ.paramName)
+                .addStatement("return instance"));
+    }
+
+    /**
+     * 类的序列化类是否有readInto，当前生成的是ByteBuffer读时要有ByteBuffer的readInto
+     * @param type 类型
+     * @return 有 true
+     */
+    private boolean hasReadInto(TypeMirror type) {
+        TypeElement element = (TypeElement) types.asElement(types.erasure(type));
+        JavaClassWrapper classWrapper = javaSourceWrapper.get(element);
+        if (classWrapper != null) {
+            return SerializerOption.REUSE.isEnabled(options, element) && !classWrapper.isCustomizedSerialize()
+                    && (!generation.buffer || SerializerOption.BYTE_BUFFER.isEnabled(options, element) && !SerializerOption.TAGGED.isEnabled(options, element) && hasBuffer(type));
+        }
+        // 之前编译好的
+        TypeElement serializerElement = elements.getTypeElement(types.erasure(type).toString() + "IOSerializer");
+        TypeMirror paramType = generation.buffer ? getTypeMirror(ByteBuffer.class) : elements.getTypeElement(SerializerBound.READ.getStreamClass()).asType();
+        return serializerElement != null && ElementFilter.methodsIn(serializerElement.getEnclosedElements()).stream()
+                .anyMatch(method -> method.getSimpleName().contentEquals(READ_INTO) && !method.getParameters().isEmpty()
+                        && types.isSameType(method.getParameters().get(0).asType(), paramType));
+    }
+
+    /**
+     * 生成并行读写 writeParallel(buffer, instance, pool)、readParallel(buffer, instance, pool)
+     * 格式与ByteBuffer读写相同，只是开启parallel的集合字段在长度后面按ParallelChunks分块，
+     * 每块由生成的 writeXxxChunk、readXxxChunk 编解码，没有这样的字段时不生成
+     * @param classWrapper 类包装
+     */
+    private void makeParallelMethodSpec(JavaClassWrapper classWrapper) {
+        boolean hasParallelField = false;
+        for (VariableWrapper variableWrapper : classWrapper.variableList) {
+            generation.primitiveCollection = SerializerOption.PRIMITIVE_COLLECTION.isEnabled(options, variableWrapper.element);
+            hasParallelField |= isParallelField(variableWrapper);
+        }
+        generation.primitiveCollection = false;
+        if (!hasParallelField) {
+            if (!SerializerOption.PARALLEL.isAll(options)) {
+                printWarning(classWrapper.getSimpleName(), "没有元素为具体类型的集合字段，不生成并行读写");
+            }
+            return;
+        }
+        generation.parallel = true;
+        generation.chunkSpecs = new ArrayList<>();
+        try {
+            MethodSpec.Builder writeSpec = makeBufferMethodSpec(classWrapper, SerializerBound.WRITE);
+            MethodSpec.Builder readSpec = makeBufferMethodSpec(classWrapper, SerializerBound.READ);
+            if (writeSpec == null || readSpec == null) {
+                return;
+            }
+            classWrapper.addMethodSpec(writeSpec.addParameter(ForkJoinPool.class, FORK_JOIN_POOL));
+            classWrapper.addMethodSpec(readSpec.addParameter(ForkJoinPool.class, FORK_JOIN_POOL));
+            generation.chunkSpecs.forEach(classWrapper::addMethodSpec);
+        } finally {
+            generation.parallel = false;
+            generation.chunkSpecs = null;
+        }
+    }
+
+    /**
+     * 类或者它的某个字段是否开启了parallel
+     * @param classWrapper 类包装
+     * @return 是 true
+     */
+    private boolean hasParallel(JavaClassWrapper classWrapper) {
+        return SerializerOption.PARALLEL.isEnabled(options, classWrapper.element)
+                || classWrapper.variableList.stream().anyMatch(variableWrapper -> SerializerOption.PARALLEL.isEnabled(options, variableWrapper.element));
+    }
+
+    /**
+     * 是否分块并行读写的字段，元素为具体类型的集合(不包括基础类型集合)
+     * @param variableWrapper 字段
+     * @return 是 true
+     */
+    private boolean isParallelField(VariableWrapper variableWrapper) {
+        TypeMirror type = variableWrapper.element.asType();
+        if (!SerializerOption.PARALLEL.isEnabled(options, variableWrapper.element) || !isCollection(type) || getPrimitiveCollectionType(type) != null) {
+            return false;
+        }
+        java.util.List<? extends TypeMirror> typeArgs = ((DeclaredType) type).getTypeArguments();
+        return typeArgs.size() == 1 && (typeArgs.get(0).getKind() == TypeKind.DECLARED || typeArgs.get(0).getKind() == TypeKind.ARRAY);
+    }
+
+    /**
+     * 分块并行读写一个集合字段，null标记和长度与普通集合相同，元素分块交给ParallelChunks
+     * 集合先转成数组按下标分块，读出的数组再按顺序放进集合
+     * @param statements 方法体stats
+     * @param variableWrapper 字段
+     * @param bound 序列化方向
+     */
+    private void serializeParallel(MethodSpec.Builder statements, VariableWrapper variableWrapper, SerializerBound bound) {
+        TypeMirror type = variableWrapper.element.asType();
+        String variable = variableWrapper.variable.name.toString();
+        Type elementType = ((Type) type).getTypeArguments().head;
+        String arrayName = variable + "Array";
+        String chunkName = bound.serializerExec + Utils.toUpperCaseFirst(variable) + "Chunk";
+        ClassName serializerName = getSerializerClassName(variableWrapper.element.getEnclosingElement().asType());
+        // 分块编解码方法，元素从数组中取或者放到数组中
+        String elementName = variable + ELEMENT;
+        String stepName = variable + "_i";
+        MethodSpec.Builder chunkSpec = MethodSpec.methodBuilder(chunkName)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(ByteBuffer.class, BUFFER)
+                .addParameter(Object[].class, "elements")
+                .addParameter(int.class, "from")
+                .addParameter(int.class, "to");
+        if (!elementType.getTypeArguments().isEmpty()) {
+            chunkSpec.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build());
+        }
+        chunkSpec.beginControlFlow("for (int $L = from; $L < to; ++$L)", stepName, stepName, stepName);
+        if (bound == SerializerBound.WRITE) {
+            chunkSpec.addStatement("$T $L = ($T) elements[$L]", ClassName.get(elementType), elementName, ClassName.get(elementType), stepName);
+            writeVariable(chunkSpec, elementType, elementName);
+        } else {
+            chunkSpec.addStatement("$T $L", ClassName.get(elementType), elementName);
+            readVariable(chunkSpec, elementType, elementName);
+            chunkSpec.addStatement("elements[$L] = $L", stepName, elementName);
+        }
+        chunkSpec.endControlFlow();
+        generation.chunkSpecs.add(chunkSpec);
+
+        if (bound == SerializerBound.WRITE) {
+            // 位图模式下可空字段已经取到局部变量中了
+            if (inNullBitmap(variable)) {
+                variable = NullBitmap.localName(variableWrapper.element);
+            } else {
+                statements.addStatement("$T $L = $L", ClassName.get(type), variable, getVariable(variableWrapper));
+            }
+            writeNullFlag(statements, variable);
+            statements.beginControlFlow("if ($L != null)", variable);
+            statements.addStatement("$T[] $L = $L.toArray()", Object.class, arrayName, variable);
+            writeLength(statements, arrayName + ".length");
+            statements.addStatement("$T.write($L, $L, $L, $T::$L)", ParallelChunks.class, BUFFER, arrayName, FORK_JOIN_POOL, serializerName, chunkName);
+            statements.endControlFlow();
+            return;
+        }
+        String lenName = variable + "Len";
+        statements.addStatement("$T $L", ClassName.get(type), variable);
+        statements.beginControlFlow("if ($L)", readNullFlag(variable));
+        readLength(statements, lenName);
+        statements.addStatement("$T[] $L = $T.read($L, $L, $L, $T::$L)", Object.class, arrayName, ParallelChunks.class, BUFFER, lenName, FORK_JOIN_POOL, serializerName, chunkName);
+        TypeMirror collectionImpl = ((Type) type).isInterface() ? getTypeMirror(getCollectionType((Type) type)) : type;
+        statements.addStatement("$L = $L", variable, newCollection(collectionImpl, lenName));
+        statements.beginControlFlow("for ($T $L : $L)", Object.class, elementName, arrayName);
+        statements.addStatement("$L.add(($T) $L)", variable, ClassName.get(elementType), elementName);
+        statements.endControlFlow();
+        statements.nextControlFlow("else");
+        readNull(statements, variable);
+        statements.endControlFlow();
+        statements.addStatement(setVariable(variableWrapper, variable));
+    }
+
+    /**
+     * 是否压缩的字段，开启compress的byte[]
+     * @param variableWrapper 字段
+     * @return 是 true
+     */
+    private boolean isCompressField(VariableWrapper variableWrapper) {
+        TypeMirror type = variableWrapper.element.asType();
+        return SerializerOption.COMPRESS.isEnabled(options, variableWrapper.element)
+                && isArray(type) && ((ArrayType) type).elemtype.getKind() == TypeKind.BYTE;
+    }
+
+    /**
+     * 读写一个压缩的byte[]字段
+     * 格式为 null标记 + 是否压缩的标记 + 长度 + 字节，压缩的字节是 Lz4Block 的格式，
+     * 小于阈值或压缩后不更小的原样写；sizeOf按不压缩计算，是上限
+     * @param statements 方法体stats
+     * @param variableWrapper 字段
+     * @param bound 序列化方向
+     */
+    private void serializeCompressed(MethodSpec.Builder statements, VariableWrapper variableWrapper, SerializerBound bound) {
+        String variable = variableWrapper.variable.name.toString();
+        if (bound == SerializerBound.READ) {
+            statements.addStatement("$T $L", byte[].class, variable);
+            readCompressed(statements, variable);
+            statements.addStatement(setVariable(variableWrapper, variable));
+            return;
+        }
+        // 位图模式下可空字段已经取到局部变量中了
+        if (inNullBitmap(variable)) {
+            variable = NullBitmap.localName(variableWrapper.element);
+        } else {
+            statements.addStatement("$T $L = $L", byte[].class, variable, getVariable(variableWrapper));
+        }
+        writeNullFlag(statements, variable);
+        statements.beginControlFlow("if ($L != null)", variable);
+        if (generation.sizing) {
+            writePrimitive(statements, boolean.class, "false");
+            writeLength(statements, variable + ".length");
+            statements.addStatement("$L += $L.length", SIZE, variable);
+            statements.endControlFlow();
+            return;
+        }
+        String packedName = variable + "Packed";
+        String bytesName = variable + "Bytes";
+        statements.addStatement("$T $L = $T.compress($L, $L)", byte[].class, packedName, Lz4Block.class, variable, compressThreshold);
+        writePrimitive(statements, boolean.class, packedName + " != null");
+        statements.addStatement("$T $L = $L != null ? $L : $L", byte[].class, bytesName, packedName, packedName, variable);
+        writeLength(statements, bytesName + ".length");
+        serializeBytes(statements, SerializerBound.WRITE, bytesName, bytesName + ".length");
+        statements.endControlFlow();
+    }
+
+    /**
+     * 读一个压缩的byte[]到已声明的局部变量
+     * @param statements 方法体stats
+     * @param variable 变量
+     */
+    private void readCompressed(MethodSpec.Builder statements, String variable) {
+        String compressedName = variable + "Compressed";
+        String lenName = variable + "Len";
+        String bytesName = variable + "Bytes";
+        statements.beginControlFlow("if ($L)", readNullFlag(variable));
+        statements.addStatement("boolean $L = $L", compressedName, doReadAnPrimitive(boolean.class));
+        readLength(statements, lenName);
+        statements.addStatement("$T $L = new byte[$L]", byte[].class, bytesName, lenName);
+        serializeBytes(statements, SerializerBound.READ, bytesName, lenName);
+        statements.addStatement("$L = $L ? $T.decompress($L) : $L", variable, compressedName, Lz4Block.class, bytesName, bytesName);
+        statements.nextControlFlow("else");
+        readNull(statements, variable);
+        statements.endControlFlow();
+    }
+
+    /**
+     * 读写byte[]的内容，流不支持批量读写时逐个读写
+     * @param statements 方法体stats
+     * @param bound 序列化方向
+     * @param array 数组
+     * @param length 长度
+     */
+    private void serializeBytes(MethodSpec.Builder statements, SerializerBound bound, String array, String length) {
+        TypeMirror byteType = types.getPrimitiveType(TypeKind.BYTE);
+        if (isBulkArray(bound, byteType)) {
+            statements.addStatement(bulkStatement(bound, byteType, array, length));
+            return;
+        }
+        String stepName = array + "_i";
+        statements.beginControlFlow("for (int $L = 0; $L < $L; ++$L)", stepName, stepName, length, stepName);
+        if (bound == SerializerBound.WRITE) {
+            writePrimitive(statements, byte.class, array + "[" + stepName + "]");
+        } else {
+            statements.addStatement("$L[$L] = $L", array, stepName, doReadAnPrimitive(byte.class));
+        }
+        statements.endControlFlow();
+    }
+
+    /**
+     * 生成集合、Map字段的流式读 readXxxStreaming(inputStream, instance, visitor)
+     * 格式与read相同，其他字段照常读到对象中，该字段的元素每解码一个就交给visitor(Map为键和值)，
+     * 不放进集合，读完后字段为null，超大集合可以边读边处理，内存占用与元素个数无关
+     * @param classWrapper 类包装
+     * @param variableWrapper 流式读的字段
+     * @return 方法定义，元素类型不是具体类型(泛型参数、通配符、原始类型)时返回null
+     */
+    private MethodSpec.Builder makeStreamingMethodSpec(JavaClassWrapper classWrapper, VariableWrapper variableWrapper) {
+        TypeMirror type = variableWrapper.element.asType();
+        // 基础类型集合的元素按包装类型交给visitor
+        generation.primitiveCollection = SerializerOption.PRIMITIVE_COLLECTION.isEnabled(options, variableWrapper.element);
+        Class<?> primitiveImpl = getPrimitiveCollectionType(type);
+        generation.primitiveCollection = false;
+        java.util.List<TypeName> argTypes = new ArrayList<>();
+        if (primitiveImpl != null) {
+            for (Class<?> argClass : Utils.PRIMITIVE_COLLECTION_MAP.get(primitiveImpl)) {
+                argTypes.add(WildcardTypeName.supertypeOf(TypeName.get(argClass).box()));
+            }
+        } else {
+            for (TypeMirror typeArg : ((DeclaredType) type).getTypeArguments()) {
+                if (typeArg.getKind() != TypeKind.DECLARED && typeArg.getKind() != TypeKind.ARRAY) {
+                    return null;
+                }
+                argTypes.add(WildcardTypeName.supertypeOf(TypeName.get(typeArg)));
+            }
+        }
+        if (argTypes.size() != (isMap(type) ? 2 : 1)) {
+            return null;
+        }
+        Class<?> visitorClass = argTypes.size() == 2 ? BiConsumer.class : Consumer.class;
+        generation.streamingField = variableWrapper;
+        try {
+            return makeReadWriteMethodSpec(classWrapper, SerializerBound.READ, false)
+                    .addParameter(ParameterizedTypeName.get(ClassName.get(visitorClass), argTypes.toArray(new TypeName[0])), VISITOR);
+        } finally {
+            generation.streamingField = null;
+        }
+    }
+
+    /**
+     * 流式读的方法名 read + 字段名 + Streaming
+     * @param variableWrapper 字段
+     * @return 方法名
+     */
+    private String getStreamingName(VariableWrapper variableWrapper) {
+        return SerializerBound.READ.serializerExec + Utils.toUpperCaseFirst(variableWrapper.variable.name.toString()) + STREAMING;
+    }
+
+    /**
+     * 生成批量读写 writeBatch(outputStream, list)、readBatch(inputStream)
+     * 格式为 元素个数 + 每个元素的null标记 + 元素，整批共用一张字符串字典表；
+     * 按行布局下元素在循环中直接展开读写父类和字段(自定义序列化和引用共享模式的除外)；
+     * 列式布局下元素按列写，先是所有元素的父类部分，再逐个字段写所有元素的值，基础类型字段整块读写
+     * @param classWrapper 类包装
+     * @param bound 序列化方向
+     * @param isCustomized 自定义的序列化
+     * @return 方法定义
+     */
+    private MethodSpec.Builder makeBatchMethodSpec(JavaClassWrapper classWrapper, SerializerBound bound, boolean isCustomized) {
+        TypeName elementType = ClassName.get(classWrapper.element);
+        TypeName listType = ParameterizedTypeName.get(ClassName.get(java.util.List.class), elementType);
+        MethodSpec.Builder methodSpec = MethodSpec.methodBuilder(bound.serializerExec + "Batch")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addException(IOException.class)
+                .addParameter(bound.stream, bound.paramName);
+        if (bound == SerializerBound.WRITE) {
+            methodSpec.returns(void.class).addParameter(listType, "batch_list");
+        } else {
+            methodSpec.returns(listType);
+        }
+        // 引用共享模式的对象表以单个元素为根，不能展开，只能逐个调用read write
+        boolean expanded = !isCustomized && !SerializerOption.REFERENCE.isEnabled(options, classWrapper.element);
+        boolean columnar = expanded && SerializerOption.BATCH_COLUMNAR.isEnabled(options, classWrapper.element);
+        boolean stringTable = !isCustomized && hasStringDictionary(classWrapper);
+        if (stringTable) {
+            methodSpec.addStatement("$T $L = $T.enter($L)", StringTable.class, STRING_TABLE, StringTable.class, bound.paramName);
+            methodSpec.beginControlFlow("try");
+        }
+        generation.varint = SerializerOption.VARINT.isEnabled(options, classWrapper.element);
+        if (bound == SerializerBound.WRITE) {
+            methodSpec.addStatement("int batch_size = batch_list.size()");
+            writeLength(methodSpec, "batch_size");
+        } else {
+            readLength(methodSpec, "batch_size");
+            methodSpec.addStatement("$T batch_list = new $T<>($T.min(batch_size, $L))", listType, ArrayList.class, Math.class, MAX_INITIAL_CAPACITY);
+        }
+        generation.varint = false;
+        if (!columnar) {
+            if (bound == SerializerBound.WRITE) {
+                methodSpec.beginControlFlow("for ($T instance : batch_list)", elementType);
+                writeNullFlag(methodSpec, "instance");
+                methodSpec.beginControlFlow("if (instance != null)");
+                serializeRow(methodSpec, classWrapper, bound, expanded);
+                methodSpec.endControlFlow();
+                methodSpec.endControlFlow();
+            } else {
+                methodSpec.beginControlFlow("for (int batch_i = 0; batch_i < batch_size; ++batch_i)");
+                methodSpec.addStatement("$T instance = null", elementType);
+                methodSpec.beginControlFlow("if ($L)", readNullFlag("instance"));
+                methodSpec.addStatement("instance = new $T()", elementType);
+                serializeRow(methodSpec, classWrapper, bound, expanded);
+                methodSpec.endControlFlow();
+                methodSpec.addStatement("batch_list.add(instance)");
+                methodSpec.endControlFlow();
+            }
+        } else {
+            // 非null的元素按顺序放到batch_rows中，后面逐列读写
+            methodSpec.addStatement("$T[] batch_rows = new $T[batch_size]", elementType, elementType);
+            methodSpec.addStatement("int batch_count = 0");
+            if (bound == SerializerBound.WRITE) {
+                methodSpec.beginControlFlow("for ($T instance : batch_list)", elementType);
+                writeNullFlag(methodSpec, "instance");
+                methodSpec.beginControlFlow("if (instance != null)");
+                methodSpec.addStatement("batch_rows[batch_count++] = instance");
+                methodSpec.endControlFlow();
+                methodSpec.endControlFlow();
+            } else {
+                methodSpec.beginControlFlow("for (int batch_i = 0; batch_i < batch_size; ++batch_i)");
+                methodSpec.addStatement("$T instance = null", elementType);
+                methodSpec.beginControlFlow("if ($L)", readNullFlag("instance"));
+                methodSpec.addStatement("instance = batch_rows[batch_count++] = new $T()", elementType);
+                methodSpec.endControlFlow();
+                methodSpec.addStatement("batch_list.add(instance)");
+                methodSpec.endControlFlow();
+            }
+            TypeMirror superClass = findSerializableParentClass(classWrapper.element.asType());
+            if (superClass != null) {
+                methodSpec.beginControlFlow("for (int batch_i = 0; batch_i < batch_count; ++batch_i)");
+                methodSpec.addStatement("$T.$L($L, batch_rows[batch_i])", ClassName.bestGuess(types.erasure(superClass).toString() + "IOSerializer"), bound.serializerExec, bound.paramName);
+                methodSpec.endControlFlow();
+            }
+            classWrapper.forEach(variableWrapper -> {
+                TypeMirror type = variableWrapper.element.asType();
+                String column = variableWrapper.variable.name + "_column";
+                generation.varint = SerializerOption.VARINT.isEnabled(options, variableWrapper.element);
+                generation.primitiveCollection = SerializerOption.PRIMITIVE_COLLECTION.isEnabled(options, variableWrapper.element);
+                generation.stringDictionary = SerializerOption.STRING_DICTIONARY.isEnabled(options, variableWrapper.element);
+                generation.stringIntern = SerializerOption.STRING_INTERN.isEnabled(options, variableWrapper.element);
+                generation.inlineElement = SerializerOption.INLINE_NESTED.isEnabled(options, variableWrapper.element) ? classWrapper.element : null;
+                if (isBulkArray(bound, type)) {
+                    // 基础类型的列整块读写
+                    TypeName columnType = ArrayTypeName.of(TypeName.get(type));
+                    methodSpec.addStatement("$T $L = new $T[batch_count]", columnType, column, TypeName.get(type));
+                    if (bound == SerializerBound.READ) {
+                        methodSpec.addStatement(bulkStatement(bound, type, column, "batch_count"));
+                    }
+                    methodSpec.beginControlFlow("for (int batch_i = 0; batch_i < batch_count; ++batch_i)");
+                    methodSpec.addStatement("$T instance = batch_rows[batch_i]", elementType);
+                    if (bound == SerializerBound.WRITE) {
+                        methodSpec.addStatement("$L[batch_i] = $L", column, getVariable(variableWrapper));
+                    } else {
+                        methodSpec.addStatement(setVariable(variableWrapper, column + "[batch_i]"));
+                    }
+                    methodSpec.endControlFlow();
+                    if (bound == SerializerBound.WRITE) {
+                        methodSpec.addStatement(bulkStatement(bound, type, column, "batch_count"));
+                    }
+                } else {
+                    methodSpec.beginControlFlow("for (int batch_i = 0; batch_i < batch_count; ++batch_i)");
+                    methodSpec.addStatement("$T instance = batch_rows[batch_i]", elementType);
+                    serializeField(methodSpec, variableWrapper, bound);
+                    methodSpec.endControlFlow();
+                }
+            });
+            generation.varint = false;
+            generation.primitiveCollection = false;
+            generation.stringDictionary = false;
+            generation.stringIntern = false;
+            generation.inlineElement = null;
+        }
+        if (bound == SerializerBound.READ) {
+            methodSpec.addStatement("return batch_list");
+        }
+        if (stringTable) {
+            methodSpec.nextControlFlow("finally");
+            methodSpec.addStatement("$L.exit()", STRING_TABLE);
+            methodSpec.endControlFlow();
+        }
+        return methodSpec;
+    }
+
+    /**
+     * 批量读写中按行读写一个非null元素 instance
+     * 能展开的直接写出父类和字段的读写，省掉每个元素一次方法调用，也不再逐个进出字符串表；不用空值位图，格式由批量读写两边自己约定
+     * @param methodSpec 方法定义
+     * @param classWrapper 类包装
+     * @param bound 序列化方向
+     * @param expanded 展开 true，否则调用read write
+     */
+    private void serializeRow(MethodSpec.Builder methodSpec, JavaClassWrapper classWrapper, SerializerBound bound, boolean expanded) {
+        if (!expanded) {
+            methodSpec.addStatement("$L($L, instance)", bound.serializerExec, bound.paramName);
+            return;
+        }
+        TypeMirror superClass = findSerializableParentClass(classWrapper.element.asType());
+        if (superClass != null) {
+            methodSpec.addStatement("$T.$L($L, instance)", ClassName.bestGuess(types.erasure(superClass).toString() + "IOSerializer"), bound.serializerExec, bound.paramName);
+        }
+        classWrapper.forEach(variableWrapper -> {
+            generation.varint = SerializerOption.VARINT.isEnabled(options, variableWrapper.element);
+            generation.primitiveCollection = SerializerOption.PRIMITIVE_COLLECTION.isEnabled(options, variableWrapper.element);
+            generation.stringDictionary = SerializerOption.STRING_DICTIONARY.isEnabled(options, variableWrapper.element);
+            generation.stringIntern = SerializerOption.STRING_INTERN.isEnabled(options, variableWrapper.element);
+            generation.inlineElement = SerializerOption.INLINE_NESTED.isEnabled(options, variableWrapper.element) ? classWrapper.element : null;
+            serializeField(methodSpec, variableWrapper, bound);
+        });
+        generation.varint = false;
+        generation.primitiveCollection = false;
+        generation.stringDictionary = false;
+        generation.stringIntern = false;
+        generation.inlineElement = null;
+    }
+
+    /**
+     * 字段的脏标记常量名 DIRTY_XXX
+     * @param variableWrapper 变量包装
+     * @return 常量名
+     */
+    private String getDirtyName(VariableWrapper variableWrapper) {
+        return DIRTY + variableWrapper.variable.name.toString().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    /**
+     * 不同字段的脏标记常量名是否相同(如 fooBar 和 foo_bar、URL 和 url)，相同时报错
+     * @param classWrapper 类包装
+     * @return 冲突 true
+     */
+    private boolean hasDirtyNameConflict(JavaClassWrapper classWrapper) {
+        Map<String, String> nameMap = new HashMap<>();
+        Result<Boolean> conflict = new Result<>(false);
+        classWrapper.forEach(variableWrapper -> {
+            String variable = variableWrapper.variable.name.toString();
+            String other = nameMap.putIfAbsent(getDirtyName(variableWrapper), variable);
+            if (other != null) {
+                printError(classWrapper.getSimpleName(), "脏标记常量名冲突，请改名! Variable: " + other + ", " + variable);
+                conflict.value = true;
+            }
+        });
+        return conflict.value;
+    }
+
+    /**
+     * 能否生成脏标记跟踪子类，final、泛型和非静态内部类不能
+     * @param element 类元素
+     * @return 能 true
+     */
+    private boolean isTrackable(TypeElement element) {
+        return !element.getModifiers().contains(Modifier.FINAL) && element.getTypeParameters().isEmpty()
+                && !(element.getNestingKind().isNested() && !element.getModifiers().contains(Modifier.STATIC));
+    }
+
+    /**
+     * 生成脏标记跟踪子类 XxxTracked，复写字段的setter，调用时置上该字段的脏标记
+     * 直接访问字段(fieldAccess)或没有setter的字段不会被跟踪，可以用markDirty手动标记
+     * @param classWrapper 类包装
+     * @return 类定义，类不能被继承时返回null
+     */
+    private TypeSpec makeTrackedSpec(JavaClassWrapper classWrapper) {
+        TypeElement element = classWrapper.element;
+        if (!isTrackable(element)) {
+            printWarning(classWrapper.getSimpleName(), "final、泛型或非静态内部类不生成脏标记跟踪子类");
+            return null;
+        }
+        ClassName serializer = ClassName.bestGuess(classWrapper.className);
+        TypeSpec.Builder trackedSpec = TypeSpec.classBuilder(classWrapper.getSimpleName() + TRACKED)
+                .addOriginatingElement(element)
+                .addModifiers(Modifier.PUBLIC)
+                .superclass(ClassName.get(element))
+                .addAnnotation(GeneratedFile.class)
+                .addField(long.class, DIRTY_MASK, Modifier.PRIVATE);
+        // 抽象类的子类也是抽象的
+        if (element.getModifiers().contains(Modifier.ABSTRACT)) {
+            trackedSpec.addModifiers(Modifier.ABSTRACT);
+        }
+        // 构造方法和父类一致
+        ElementFilter.constructorsIn(element.getEnclosedElements()).forEach(constructor -> {
+            if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return;
+            }
+            MethodSpec.Builder constructorSpec = MethodSpec.constructorBuilder().addModifiers(constructor.getModifiers());
+            StringJoiner args = new StringJoiner(", ");
+            constructor.getParameters().forEach(parameter -> {
+                constructorSpec.addParameter(ParameterSpec.get(parameter));
+                args.add(parameter.getSimpleName());
+            });
+            constructor.getThrownTypes().forEach(thrownType -> constructorSpec.addException(TypeName.get(thrownType)));
+            trackedSpec.addMethod(constructorSpec.addStatement("super($L)", args.toString()).build());
+        });
+        // setter置脏标记
+        List<ExecutableElement> methods = List.from(ElementFilter.methodsIn(element.getEnclosedElements()));
+        classWrapper.forEach(variableWrapper -> {
+            String setterName = "set" + Utils.toUpperCaseFirst(variableWrapper.variable.name.toString());
+            methods.stream().filter(method -> method.getSimpleName().contentEquals(setterName) && method.getParameters().size() == 1)
+                    .filter(method -> Collections.disjoint(method.getModifiers(), EnumSet.of(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)))
+                    .findFirst()
+                    .ifPresent(method -> {
+                        VariableElement parameter = method.getParameters().get(0);
+                        MethodSpec.Builder setter = MethodSpec.overriding(method)
+                                .addStatement("$L |= $T.$L", DIRTY_MASK, serializer, getDirtyName(variableWrapper));
+                        if (method.getReturnType().getKind() == TypeKind.VOID) {
+                            setter.addStatement("super.$L($L)", setterName, parameter.getSimpleName());
+                        } else {
+                            setter.addStatement("return super.$L($L)", setterName, parameter.getSimpleName());
+                        }
+                        trackedSpec.addMethod(setter.build());
+                    });
+        });
+        trackedSpec.addMethod(MethodSpec.methodBuilder(DIRTY_MASK)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(long.class)
+                .addStatement("return $L", DIRTY_MASK)
+                .build());
+        trackedSpec.addMethod(MethodSpec.methodBuilder("markDirty")
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(long.class, "mask")
+                .addStatement("$L |= mask", DIRTY_MASK)
+                .build());
+        trackedSpec.addMethod(MethodSpec.methodBuilder("clearDirty")
+                .addModifiers(Modifier.PUBLIC)
+                .addStatement("$L = 0", DIRTY_MASK)
+                .build());
+        trackedSpec.addMethod(MethodSpec.methodBuilder("clearDirty")
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(long.class, "mask")
+                .addStatement("$L &= ~mask", DIRTY_MASK)
+                .build());
+        return trackedSpec.build();
+    }
+
+    /**
+     * 生成延迟解码视图 XxxLazyView
+     * 构造时只扫一遍记下每个字段的位置(块按长度前缀整块跳过)，并把传入的缓冲区推进到消息末尾，
+     * getter被调用时才从记下的位置解码该字段，每次调用都重新解码，不是线程安全的
+     * @param classWrapper 类包装
+     * @return 类定义
+     */
+    private TypeSpec makeLazyViewSpec(JavaClassWrapper classWrapper) {
+        TypeSpec.Builder viewSpec = TypeSpec.classBuilder(classWrapper.getSimpleName() + LAZY_VIEW)
+                .addOriginatingElement(classWrapper.element)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addAnnotation(GeneratedFile.class)
+                .addField(ByteBuffer.class, BUFFER, Modifier.PRIVATE, Modifier.FINAL);
+        // 构造方法的参数与字段同名，扫描推进的是传入的缓冲区，getter用的是自己的副本
+        MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(ByteBuffer.class, BUFFER)
+                .addStatement("this.$L = $L.duplicate().order($L.order())", BUFFER, BUFFER, BUFFER);
+        generation.buffer = true;
+        generation.bufferElement = classWrapper.element;
+        try {
+            // 父类部分整块跳过，父类也有视图时可以取父类的视图
+            TypeMirror superClass = findSerializableParentClass(classWrapper.element.asType());
+            if (superClass != null) {
+                skipBlock(viewSpec, constructor, "super");
+                if (hasLazyView(superClass)) {
+                    ClassName superView = ClassName.bestGuess(types.erasure(superClass).toString() + LAZY_VIEW);
+                    viewSpec.addMethod(MethodSpec.methodBuilder("getSuperView")
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(superView)
+                            .addStatement("$L.position($LOffset)", BUFFER, "super")
+                            .addStatement("return new $T($L)", superView, BUFFER)
+                            .build());
+                }
+            }
+            // 空值位图读到字段中，getter里判断null要用
+            generation.nullBitmap = SerializerOption.NULL_BITMAP.isEnabled(options, classWrapper.element) ? collectNullBitmap(classWrapper) : null;
+            if (generation.nullBitmap != null) {
+                for (int word = 0; word < generation.nullBitmap.wordCount(); ++word) {
+                    viewSpec.addField(generation.nullBitmap.wordLocalClass(word), generation.nullBitmap.wordName(word), Modifier.PRIVATE, Modifier.FINAL);
+                    constructor.addStatement("$L = $L", generation.nullBitmap.wordName(word), doReadAnPrimitive(generation.nullBitmap.wordClass(word)));
+                }
+            }
+            classWrapper.forEach(variableWrapper -> {
+                TypeMirror type = variableWrapper.element.asType();
+                String variable = variableWrapper.variable.name.toString();
+                generation.nullBitmapField = variableWrapper.element;
+                generation.varint = SerializerOption.VARINT.isEnabled(options, variableWrapper.element);
+                generation.primitiveCollection = SerializerOption.PRIMITIVE_COLLECTION.isEnabled(options, variableWrapper.element);
+                if (isBlock(type, false)) {
+                    skipBlock(viewSpec, constructor, variable);
+                } else {
+                    viewSpec.addField(int.class, variable + "Offset", Modifier.PRIVATE, Modifier.FINAL);
+                    constructor.addStatement("$LOffset = $L.position()", variable, BUFFER);
+                    skipPrimitive(constructor, type, variable);
+                }
+                // getter
+                MethodSpec.Builder getter = MethodSpec.methodBuilder(getterName(variableWrapper))
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(TypeName.get(type))
+                        .addStatement("$L.position($LOffset)", BUFFER, variable);
+                if (type.getKind().isPrimitive()) {
+                    getter.addStatement("return $L", doReadAnPrimitive(getPrimitiveClass(type)));
+                } else if (isCompressField(variableWrapper)) {
+                    getter.addStatement("$T $L", TypeName.get(type), variable);
+                    readCompressed(getter, variable);
+                    getter.addStatement("return $L", variable);
+                } else {
+                    getter.addStatement("$T $L", TypeName.get(type), variable);
+                    readVariable(getter, type, variable);
+                    getter.addStatement("return $L", variable);
+                }
+                viewSpec.addMethod(getter.build());
+            });
+        } finally {
+            generation.buffer = false;
+            generation.bufferElement = null;
+            generation.nullBitmap = null;
+            generation.nullBitmapField = null;
+            generation.varint = false;
+            generation.primitiveCollection = false;
+        }
+        return viewSpec.addMethod(constructor.build()).build();
+    }
+
+    /**
+     * 扫描时按长度前缀跳过一个块，记下块内容的位置
+     * @param viewSpec 视图类
+     * @param constructor 构造方法
+     * @param name 块名
+     */
+    private void skipBlock(TypeSpec.Builder viewSpec, MethodSpec.Builder constructor, String name) {
+        viewSpec.addField(int.class, name + "Offset", Modifier.PRIVATE, Modifier.FINAL);
+        constructor.addStatement("int $LLen = $L.getInt()", name, BUFFER);
+        constructor.addStatement("$LOffset = $L.position()", name, BUFFER);
+        constructor.addStatement("$L.position($LOffset + $LLen)", BUFFER, name, name);
+    }
+
+    /**
+     * 扫描时跳过一个基础类型、包装类型或字符串
+     * @param constructor 构造方法
+     * @param type 类型
+     * @param variable 变量
+     */
+    private void skipPrimitive(MethodSpec.Builder constructor, TypeMirror type, String variable) {
+        if (isWrapper(type)) {
+            constructor.beginControlFlow("if ($L)", readNullFlag(variable));
+        }
+        Class<?> primitiveClass = getPrimitiveClass(type);
+        int fixedSize = getFixedSize(primitiveClass);
+        if (fixedSize > 0) {
+            constructor.addStatement("$L.position($L.position() + $L)", BUFFER, BUFFER, fixedSize);
+        } else if (String.class == primitiveClass) {
+            constructor.addStatement("$T.skipString($L)", ByteBuffers.class, BUFFER);
+        } else {
+            // 变长整数只能读一遍
+            constructor.addStatement("$L", doReadAnPrimitive(primitiveClass));
+        }
+        if (isWrapper(type)) {
+            constructor.endControlFlow();
+        }
+    }
+
+    /**
+     * 类是否有延迟解码视图
+     * @param type 类型
+     * @return 有 true
+     */
+    private boolean hasLazyView(TypeMirror type) {
+        TypeElement element = (TypeElement) types.asElement(types.erasure(type));
+        if (javaSourceWrapper.get(element) != null) {
+            return SerializerOption.LAZY_VIEW.isEnabled(options, element) && SerializerOption.BYTE_BUFFER.isEnabled(options, element)
+                    && SerializerOption.BUFFER_BLOCKS.isEnabled(options, element) && !SerializerOption.TAGGED.isEnabled(options, element) && hasBuffer(type);
+        }
+        return elements.getTypeElement(types.erasure(type).toString() + LAZY_VIEW) != null;
+    }
+
+    /**
+     * 定长布局的字段，包括父类的，按字节数从大到小排(同样大小的父类在前)，每个字段都在自然对齐的偏移上
+     * 父类要在本轮、同一个包中，所有类都不能是泛型类、自定义序列化的类
+     * @param classWrapper 类包装
+     * @return 字段，不是全部由基础类型字段组成时返回null
+     */
+    private java.util.List<VariableWrapper> collectStructFields(JavaClassWrapper classWrapper) {
+        java.util.List<VariableWrapper> fields = new ArrayList<>();
+        PackageElement packageElement = elements.getPackageOf(classWrapper.element);
+        JavaClassWrapper current = classWrapper;
+        while (true) {
+            if (current.isCustomizedSerialize() || !current.element.getTypeParameters().isEmpty()) {
+                return null;
+            }
+            for (VariableWrapper variableWrapper : current.variableList) {
+                TypeMirror type = variableWrapper.element.asType();
+                if (!type.getKind().isPrimitive() || getFixedSize(getPrimitiveClass(type)) <= 0) {
+                    return null;
+                }
+            }
+            fields.addAll(0, current.variableList);
+            TypeMirror superClass = findSerializableParentClass(current.element.asType());
+            if (superClass == null) {
+                break;
+            }
+            TypeElement superElement = (TypeElement) types.asElement(types.erasure(superClass));
+            current = javaSourceWrapper.get(superElement);
+            // 之前编译好的父类拿不到字段，其他包的父类字段可能访问不到
+            if (current == null || !elements.getPackageOf(superElement).equals(packageElement)) {
+                return null;
+            }
+        }
+        if (fields.isEmpty()) {
+            return null;
+        }
+        fields.sort(Comparator.comparingInt(variableWrapper -> -getFixedSize(getPrimitiveClass(variableWrapper.element.asType()))));
+        return fields;
+    }
+
+    /**
+     * 生成定长布局的读写，布局与流、ByteBuffer格式无关，字段在固定偏移上按缓冲区的字节序读写，没有null标记和长度
+     * STRUCT_SIZE 每个对象的字节数
+     * putStruct(buffer, offset, instance)、getStruct(buffer, offset, instance) 按绝对位置读写，不移动position
+     * writeStructs(buffer, array, off, len)、readStructs(buffer, array, off, len) 从position开始连续读写一段数组，元素不能为null
+     * @param classWrapper 类包装
+     * @param structFields 定长布局的字段
+     */
+    private void makeStructMethodSpec(JavaClassWrapper classWrapper, java.util.List<VariableWrapper> structFields) {
+        TypeName instanceType = ClassName.get(classWrapper.element);
+        MethodSpec.Builder putSpec = MethodSpec.methodBuilder("putStruct")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(ByteBuffer.class, BUFFER)
+                .addParameter(int.class, "offset")
+                .addParameter(instanceType, "instance");
+        MethodSpec.Builder getSpec = MethodSpec.methodBuilder("getStruct")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(ByteBuffer.class, BUFFER)
+                .addParameter(int.class, "offset")
+                .addParameter(instanceType, "instance");
+        int offset = 0;
+        for (VariableWrapper variableWrapper : structFields) {
+            Class<?> primitiveClass = getPrimitiveClass(variableWrapper.element.asType());
+            String index = offset == 0 ? "offset" : "offset + " + offset;
+            String value = getVariable(variableWrapper);
+            if (boolean.class == primitiveClass) {
+                putSpec.addStatement("$L.put($L, (byte) ($L ? 1 : 0))", BUFFER, index, value);
+            } else {
+                putSpec.addStatement("$L.$L($L, $L)", BUFFER, getStructAccessor("put", primitiveClass), index, value);
+            }
+            getSpec.addStatement(setVariable(variableWrapper, getStructValue(primitiveClass, index)));
+            offset += getFixedSize(primitiveClass);
+        }
+        classWrapper.classSpec.addField(FieldSpec.builder(int.class, STRUCT_SIZE, Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$L", offset)
+                .build());
+        classWrapper.addMethodSpec(putSpec);
+        classWrapper.addMethodSpec(getSpec);
+        TypeName arrayType = ArrayTypeName.of(instanceType);
+        // 先检查下标和空间，不会写一半
+        classWrapper.addMethodSpec(MethodSpec.methodBuilder("writeStructs")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(ByteBuffer.class, BUFFER)
+                .addParameter(arrayType, "array")
+                .addParameter(int.class, "off")
+                .addParameter(int.class, "len")
+                .beginControlFlow("if (off < 0 || len < 0 || off > array.length - len)")
+                .addStatement("throw new $T(\"off: \" + off + \", len: \" + len + \", length: \" + array.length)", IndexOutOfBoundsException.class)
+                .endControlFlow()
+                .addStatement("int position = $L.position()", BUFFER)
+                .beginControlFlow("if ($L.limit() - position < (long) len * $L)", BUFFER, STRUCT_SIZE)
+                .addStatement("throw new $T()", BufferOverflowException.class)
+                .endControlFlow()
+                .beginControlFlow("for (int i = 0; i < len; ++i)")
+                .addStatement("putStruct($L, position + i * $L, array[off + i])", BUFFER, STRUCT_SIZE)
+                .endControlFlow()
+                .addStatement("$L.position(position + len * $L)", BUFFER, STRUCT_SIZE));
+        TypeElement element = classWrapper.element;
+        if (element.getModifiers().contains(Modifier.ABSTRACT) || !hasNoArgsConstructor(element)) {
+            return;
+        }
+        // 数组中已有的对象直接覆盖
+        classWrapper.addMethodSpec(MethodSpec.methodBuilder("readStructs")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(ByteBuffer.class, BUFFER)
+                .addParameter(arrayType, "array")
+                .addParameter(int.class, "off")
+                .addParameter(int.class, "len")
+                .beginControlFlow("if (off < 0 || len < 0 || off > array.length - len)")
+                .addStatement("throw new $T(\"off: \" + off + \", len: \" + len + \", length: \" + array.length)", IndexOutOfBoundsException.class)
+                .endControlFlow()
+                .addStatement("int position = $L.position()", BUFFER)
+                .beginControlFlow("if ($L.limit() - position < (long) len * $L)", BUFFER, STRUCT_SIZE)
+                .addStatement("throw new $T()", BufferUnderflowException.class)
+                .endControlFlow()
+                .beginControlFlow("for (int i = 0; i < len; ++i)")
+                .addStatement("$T instance = array[off + i]", instanceType)
+                .beginControlFlow("if (instance == null)")
+                .addStatement("instance = new $T()", instanceType)
+                .addStatement("array[off + i] = instance")
+                .endControlFlow()
+                .addStatement("getStruct($L, position + i * $L, instance)", BUFFER, STRUCT_SIZE)
+                .endControlFlow()
+                .addStatement("$L.position(position + len * $L)", BUFFER, STRUCT_SIZE));
+    }
+
+    /**
+     * 生成定长布局的平铺视图 XxxStructView，wrap到缓冲区的某个偏移上后getter直接按固定偏移读，不创建对象，
+     * 同一个视图可以在数组的各个元素上移动
+     * @param classWrapper 类包装
+     * @param structFields 定长布局的字段
+     * @return 类定义
+     */
+    private TypeSpec makeStructViewSpec(JavaClassWrapper classWrapper, java.util.List<VariableWrapper> structFields) {
+        ClassName viewName = ClassName.get(elements.getPackageOf(classWrapper.element).getQualifiedName().toString(),
+                classWrapper.getSimpleName() + STRUCT_VIEW);
+        TypeSpec.Builder viewSpec = TypeSpec.classBuilder(viewName)
+                .addOriginatingElement(classWrapper.element)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addAnnotation(GeneratedFile.class)
+                .addField(ByteBuffer.class, BUFFER, Modifier.PRIVATE)
+                .addField(int.class, "offset", Modifier.PRIVATE)
+                .addMethod(MethodSpec.methodBuilder("wrap")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(viewName)
+                        .addParameter(ByteBuffer.class, BUFFER)
+                        .addParameter(int.class, "offset")
+                        .addStatement("this.$L = $L", BUFFER, BUFFER)
+                        .addStatement("this.offset = offset")
+                        .addStatement("return this")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("offset")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addStatement("return offset")
+                        .build());
+        int offset = 0;
+        for (VariableWrapper variableWrapper : structFields) {
+            TypeMirror type = variableWrapper.element.asType();
+            Class<?> primitiveClass = getPrimitiveClass(type);
+            viewSpec.addMethod(MethodSpec.methodBuilder(getterName(variableWrapper))
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(TypeName.get(type))
+                    .addStatement("return $L", getStructValue(primitiveClass, offset == 0 ? "offset" : "offset + " + offset))
+                    .build());
+            offset += getFixedSize(primitiveClass);
+        }
+        return viewSpec.build();
+    }
+
+    /**
+     * 定长布局按绝对位置读一个字段的表达式
+     * @param primitiveClass 基础类型
+     * @param index 绝对位置
+     * @return 表达式
+     */
+    private CodeBlock getStructValue(Class<?> primitiveClass, String index) {
+        if (boolean.class == primitiveClass) {
+            return CodeBlock.of("$L.get($L) != 0", BUFFER, index);
+        }
+        return CodeBlock.of("$L.$L($L)", BUFFER, getStructAccessor("get", primitiveClass), index);
+    }
+
+    /**
+     * ByteBuffer按绝对位置读写基础类型的方法名 get/put + Int、Long...，byte为get/put
+     * @param prefix get put
+     * @param primitiveClass 基础类型
+     * @return 方法名
+     */
+    private String getStructAccessor(String prefix, Class<?> primitiveClass) {
+        return byte.class == primitiveClass ? prefix : prefix + Utils.toUpperCaseFirst(primitiveClass.getSimpleName());
+    }
+
+    /**
+     * 生成JMH基准测试类，测试write、read和往返的吞吐量，分配速率用 -prof gc 查看
+     * 样例数据在Setup中用SampleData填充，流由BenchmarkStreams的实现提供
+     * @param classWrapper 类包装
+     * @return 类定义，无法生成时返回null
+     */
+    private TypeSpec makeBenchmarkSpec(JavaClassWrapper classWrapper) {
+        String streamsClass = SerializerOption.BENCHMARK_STREAMS.getValue(options, null);
+        if (streamsClass == null) {
+            printError(classWrapper.getSimpleName(), "生成基准测试需要指定 -A" + SerializerOption.BENCHMARK_STREAMS.key);
+            return null;
+        }
+        if (classWrapper.element.getModifiers().contains(Modifier.ABSTRACT) || !hasNoArgsConstructor(classWrapper.element)) {
+            printWarning(classWrapper.getSimpleName(), "抽象类或没有无参构造方法，不生成基准测试");
+            return null;
+        }
+        ClassName instanceClass = ClassName.get(classWrapper.element);
+        ClassName serializerClass = ClassName.get(elements.getPackageOf(classWrapper.element).toString(), classWrapper.className);
+        ClassName benchmark = ClassName.get(JMH_PACKAGE, "Benchmark");
+        TypeName outputStream = ClassName.get(SerializerBound.WRITE.stream);
+
+        MethodSpec setup = MethodSpec.methodBuilder("setup")
+                .addAnnotation(ClassName.get(JMH_PACKAGE, "Setup"))
+                .addModifiers(Modifier.PUBLIC)
+                .addException(IOException.class)
+                .addStatement("streams = new $T()", ClassName.bestGuess(streamsClass))
+                .addStatement("instance = $T.create($T.class)", SampleData.class, instanceClass)
+                .addStatement("outputStream = streams.newOutputStream()")
+                .addStatement("written = streams.newOutputStream()")
+                .addStatement("$T.write(written, instance)", serializerClass)
+                .build();
+        MethodSpec write = MethodSpec.methodBuilder("write")
+                .addAnnotation(benchmark)
+                .addModifiers(Modifier.PUBLIC)
+                .addException(IOException.class)
+                .returns(outputStream)
+                .addStatement("streams.reset(outputStream)")
+                .addStatement("$T.write(outputStream, instance)", serializerClass)
+                .addStatement("return outputStream")
+                .build();
+        MethodSpec read = MethodSpec.methodBuilder("read")
+                .addAnnotation(benchmark)
+                .addModifiers(Modifier.PUBLIC)
+                .addException(IOException.class)
+                .returns(instanceClass)
+                .addStatement("$T result = new $T()", instanceClass, instanceClass)
+                .addStatement("$T.read(streams.newInputStream(written), result)", serializerClass)
+                .addStatement("return result")
+                .build();
+        MethodSpec roundTrip = MethodSpec.methodBuilder("roundTrip")
+                .addAnnotation(benchmark)
+                .addModifiers(Modifier.PUBLIC)
+                .addException(IOException.class)
+                .returns(instanceClass)
+                .addStatement("streams.reset(outputStream)")
+                .addStatement("$T.write(outputStream, instance)", serializerClass)
+                .addStatement("$T result = new $T()", instanceClass, instanceClass)
+                .addStatement("$T.read(streams.newInputStream(outputStream), result)", serializerClass)
+                .addStatement("return result")
+                .build();
+
+        return TypeSpec.classBuilder(classWrapper.className + "Benchmark")
+                .addOriginatingElement(classWrapper.element)
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(GeneratedFile.class)
+                .addAnnotation(AnnotationSpec.builder(ClassName.get(JMH_PACKAGE, "State"))
+                        .addMember("value", "$T.Thread", ClassName.get(JMH_PACKAGE, "Scope")).build())
+                .addAnnotation(AnnotationSpec.builder(ClassName.get(JMH_PACKAGE, "BenchmarkMode"))
+                        .addMember("value", "$T.Throughput", ClassName.get(JMH_PACKAGE, "Mode")).build())
+                .addAnnotation(AnnotationSpec.builder(ClassName.get(JMH_PACKAGE, "OutputTimeUnit"))
+                        .addMember("value", "$T.SECONDS", ClassName.get("java.util.concurrent", "TimeUnit")).build())
+                .addField(BenchmarkStreams.class, "streams", Modifier.PRIVATE)
+                .addField(instanceClass, "instance", Modifier.PRIVATE)
+                .addField(outputStream, "outputStream", Modifier.PRIVATE)
+                .addField(outputStream, "written", Modifier.PRIVATE)
+                .addMethod(setup)
+                .addMethod(write)
+                .addMethod(read)
+                .addMethod(roundTrip)
+                .build();
+    }
+
+    /**
+     * 是否有同包可访问的无参构造方法
+     * @param element 类元素
+     * @return 有 true
+     */
+    private boolean hasNoArgsConstructor(TypeElement element) {
+        return hasNoArgsConstructor(element, true);
+    }
+
+    /**
+     * 是否有可访问的无参构造方法
+     * @param element 类元素
+     * @param samePackage 是否在同一个包中访问
+     * @return 有 true
+     */
+    private boolean hasNoArgsConstructor(TypeElement element, boolean samePackage) {
+        if (!samePackage && !element.getModifiers().contains(Modifier.PUBLIC)) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+            if (!constructor.getParameters().isEmpty()) {
+                continue;
+            }
+            Set<Modifier> modifiers = constructor.getModifiers();
+            if (samePackage ? !modifiers.contains(Modifier.PRIVATE) : modifiers.contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 生成多态分发类，给所有可以直接创建的具体类分配类型id，0表示null，1表示未登记的类型(走流的通用读写)
+     * 类型id不随类的增删变化: -Aserializer.typeIds 指定的用指定的，其余按完全限定名的哈希取，冲突时报错，需要给其中一个指定id
+     * 哈希取的id写入占3字节，每个没有指定id的类都给出警告
+     * @param javaSourceWrapper 本轮所有的类
+     */
+    private void writeDispatcher(JavaSourceWrapper javaSourceWrapper) {
+        java.util.List<JavaClassWrapper> classWrappers = new ArrayList<>();
+        javaSourceWrapper.forEach(classWrapper -> {
+            TypeElement element = classWrapper.element;
+            boolean samePackage = elements.getPackageOf(element).getQualifiedName().contentEquals(dispatcher.packageName());
+            if (isAbstract(element.asType()) || !hasNoArgsConstructor(element, samePackage)) {
+                return;
+            }
+            classWrappers.add(classWrapper);
+        });
+        classWrappers.sort(Comparator.comparing(classWrapper -> classWrapper.element.getQualifiedName().toString()));
+
+        TypeSpec.Builder dispatcherSpec = TypeSpec.classBuilder(dispatcher)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addAnnotation(GeneratedFile.class)
+                .addJavadoc("多态分发，0: null，1: 未登记的类型，其他为具体类的类型id\n");
+        ParameterizedTypeName typeIdMapType = ParameterizedTypeName.get(ClassName.get(Map.class),
+                ParameterizedTypeName.get(ClassName.get(Class.class), WildcardTypeName.subtypeOf(Object.class)), ClassName.get(Integer.class));
+        CodeBlock.Builder typeIdInit = CodeBlock.builder();
+        CodeBlock.Builder writeSwitch = CodeBlock.builder().beginControlFlow("switch (typeId)");
+        CodeBlock.Builder readSwitch = CodeBlock.builder().beginControlFlow("switch (typeId)")
+                .addStatement("case $L: return null", NULL_TYPE_ID)
+                .addStatement("case $L: return $L.read()", GENERIC_TYPE_ID, SerializerBound.READ.paramName);
+        Map<String, Integer> explicitTypeIds = getExplicitTypeIds();
+        Map<Integer, String> typeIdOwners = new HashMap<>();
+        for (JavaClassWrapper classWrapper : classWrappers) {
+            String qualifiedName = classWrapper.element.getQualifiedName().toString();
+            Integer explicitTypeId = explicitTypeIds.containsKey(qualifiedName) ? explicitTypeIds.get(qualifiedName) : explicitTypeIds.get(classWrapper.getSimpleName());
+            int typeId = explicitTypeId != null ? explicitTypeId : getHashedTypeId(qualifiedName);
+            String owner = typeIdOwners.put(typeId, qualifiedName);
+            if (owner != null) {
+                printError(classWrapper.getSimpleName(), "类型id " + typeId + " 与 " + owner + " 冲突，请用 -A" + SerializerOption.TYPE_IDS.key + " 指定其中一个的id");
+                continue;
+            }
+            if (explicitTypeId == null) {
+                printWarning(classWrapper.getSimpleName(), "未用 -A" + SerializerOption.TYPE_IDS.key + " 指定类型id，按哈希取的id " + typeId
+                        + " 每次写入占3字节，指定 [" + (GENERIC_TYPE_ID + 1) + ", " + EXPLICIT_TYPE_ID_LIMIT + ") 内的id只占1~2字节");
+            }
+            dispatcherSpec.addOriginatingElement(classWrapper.element);
+            TypeName instanceType = TypeName.get(types.erasure(classWrapper.element.asType()));
+            ClassName serializerClass = ClassName.get(elements.getPackageOf(classWrapper.element).toString(), classWrapper.className);
+            typeIdInit.addStatement("TYPE_ID_MAP.put($T.class, $L)", instanceType, typeId);
+            writeSwitch.add("case $L:\n", typeId).indent()
+                    .addStatement("$T.$L($L, ($T) value)", serializerClass, SerializerBound.WRITE.serializerExec, SerializerBound.WRITE.paramName, instanceType)
+                    .addStatement("break").unindent();
+            readSwitch.add("case $L: {\n", typeId).indent()
+                    .addStatement("$T instance = new $T()", instanceType, instanceType)
+                    .addStatement("$T.$L($L, instance)", serializerClass, SerializerBound.READ.serializerExec, SerializerBound.READ.paramName)
+                    .addStatement("return (T) instance").unindent()
+                    .add("}\n");
+        }
+        writeSwitch.add("default:\n").indent()
+                .addStatement("throw new $T($S + typeId)", IllegalStateException.class, "unknown type id: ").unindent()
+                .endControlFlow();
+        readSwitch.add("default:\n").indent()
+                .addStatement("throw new $T($S + typeId)", IOException.class, "unknown type id: ").unindent()
+                .endControlFlow();
+
+        dispatcherSpec.addField(FieldSpec.builder(typeIdMapType, "TYPE_ID_MAP", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .addJavadoc("类 -> 类型id\n")
+                .initializer("new $T<>()", IdentityHashMap.class)
+                .build());
+        dispatcherSpec.addStaticBlock(typeIdInit.build());
+        dispatcherSpec.addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build());
+        dispatcherSpec.addMethod(MethodSpec.methodBuilder(SerializerBound.WRITE.serializerExec)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addException(IOException.class)
+                .addParameter(SerializerBound.WRITE.stream, SerializerBound.WRITE.paramName)
+                .addParameter(Object.class, "value")
+                .beginControlFlow("if (value == null)")
+                .addStatement("$T.writeVarInt($L, $L)", VarInts.class, SerializerBound.WRITE.paramName, NULL_TYPE_ID)
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("$T typeId = TYPE_ID_MAP.get(value.getClass())", Integer.class)
+                .beginControlFlow("if (typeId == null)")
+                .addStatement("$T.writeVarInt($L, $L)", VarInts.class, SerializerBound.WRITE.paramName, GENERIC_TYPE_ID)
+                .addStatement("$L.write(value)", SerializerBound.WRITE.paramName)
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("$T.writeVarInt($L, typeId)", VarInts.class, SerializerBound.WRITE.paramName)
+                .addCode(writeSwitch.build())
+                .build());
+        TypeVariableName t = TypeVariableName.get("T");
+        dispatcherSpec.addMethod(MethodSpec.methodBuilder(SerializerBound.READ.serializerExec)
+                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build())
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addTypeVariable(t)
+                .returns(t)
+                .addException(IOException.class)
+                .addParameter(SerializerBound.READ.stream, SerializerBound.READ.paramName)
+                .addStatement("int typeId = $T.readVarInt($L)", VarInts.class, SerializerBound.READ.paramName)
+                .addCode(readSwitch.build())
+                .build());
+
+        try {
+            JavaFile.builder(dispatcher.packageName(), dispatcherSpec.build())
+                    .addFileComment("This file is generated by program. Do not edit it manually")
+                    .indent("    ")
+                    .build()
+                    .writeTo(filer);
+        } catch (IOException e) {
+            // 所有序列化类都引用了分发类，生成失败要让编译失败
+            messager.printMessage(Diagnostic.Kind.ERROR, "多态分发类 " + dispatcher + " 生成失败: " + e);
+        }
+    }
+
+    /**
+     * 指定的类型id 类名(完全限定名或简单类名) -> id，格式错误或超出范围的报错
+     * @return 类型id
+     */
+    private Map<String, Integer> getExplicitTypeIds() {
+        Map<String, Integer> typeIds = new HashMap<>();
+        String value = SerializerOption.TYPE_IDS.getValue(options, null);
+        if (value == null) {
+            return typeIds;
+        }
+        for (String entry : value.split(",")) {
+            int index = entry.indexOf('=');
+            try {
+                int typeId = Integer.parseInt(entry.substring(index + 1).trim());
+                if (index <= 0 || typeId <= GENERIC_TYPE_ID || typeId >= EXPLICIT_TYPE_ID_LIMIT) {
+                    throw new NumberFormatException();
                 }
-            });
+                typeIds.put(entry.substring(0, index).trim(), typeId);
+            } catch (NumberFormatException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "-A" + SerializerOption.TYPE_IDS.key + " 格式为 类名=id，id在 ["
+                        + (GENERIC_TYPE_ID + 1) + ", " + EXPLICIT_TYPE_ID_LIMIT + ") 内: " + entry.trim());
+            }
         }
-        return methodSpec;
+        return typeIds;
+    }
+
+    /**
+     * 按完全限定名的哈希取的类型id，在指定的id范围之上，不会和指定的冲突
+     * @param qualifiedName 类的完全限定名
+     * @return 类型id
+     */
+    private static int getHashedTypeId(String qualifiedName) {
+        long hash = Long.parseUnsignedLong(Utils.fingerprint(qualifiedName), 16);
+        return EXPLICIT_TYPE_ID_LIMIT + (int) Long.remainderUnsigned(hash, HASHED_TYPE_ID_LIMIT - EXPLICIT_TYPE_ID_LIMIT);
     }
 
     /**
@@ -226,13 +2610,26 @@ public class SerializerProcessor extends AbstractProcessor {
         TypeMirror type = variableWrapper.element.asType();
         String variable = variableWrapper.variable.name.toString();
         if (bound == SerializerBound.WRITE) {
-            String getVariable = "instance.get" + Utils.toUpperCaseFirst(variable) + "()";
-            statements.addStatement("$T $L = $L", ClassName.get(type), variable, getVariable);
+            statements.addStatement("$T $L = $L", ClassName.get(type), variable, getVariable(variableWrapper));
             writeVariable(statements, variableWrapper.element.asType(), variable);
+        } else if (generation.reusing) {
+            // 取出原值，读的时候复用
+            statements.addStatement("$T $L = $L", ClassName.get(type), variable, getVariable(variableWrapper));
+            generation.reuseVariable = variable;
+            try {
+                readVariable(statements, variableWrapper.element.asType(), variable);
+            } finally {
+                generation.reuseVariable = null;
+            }
+            statements.addStatement(setVariable(variableWrapper, variable));
+        } else if (variableWrapper == generation.streamingField) {
+            // 元素交给visitor，字段不持有集合
+            readStreaming(statements, type, variable);
+            statements.addStatement(setVariable(variableWrapper, "null"));
         } else {
             statements.addStatement("$T $L", ClassName.get(type), variable);
             readVariable(statements, variableWrapper.element.asType(), variable);
-            statements.addStatement("instance.set$L($L)", Utils.toUpperCaseFirst(variable), variable);
+            statements.addStatement(setVariable(variableWrapper, variable));
         }
     }
 
@@ -282,7 +2679,7 @@ public class SerializerProcessor extends AbstractProcessor {
         // 包装类型得先写个null
         if (isWrapper(type)) {
             // 先写一个布尔值标记集合是否为null
-            writePrimitive(statements, boolean.class, variableName + " != null");
+            writeNullFlag(statements, variableName);
             statements.beginControlFlow("if ($L != null)", variableName);
             // 如果不为null则写值
             writePrimitive(statements, getPrimitiveClass(type), variableName);
@@ -299,10 +2696,61 @@ public class SerializerProcessor extends AbstractProcessor {
      * @param variableName 变量
      */
     private void writePrimitive(MethodSpec.Builder statements, Class<?> primitiveClass, String variableName) {
+        if (generation.sizing) {
+            int fixedSize = getFixedSize(primitiveClass);
+            if (fixedSize > 0) {
+                statements.addStatement("$L += $L", SIZE, fixedSize);
+            } else if (String.class == primitiveClass && generation.stringDictionary) {
+                // 标记1字节 + 字面量，引用编号不超过3字节，不会比这个大
+                statements.addStatement("$L += 1 + $T.sizeOfString($L)", SIZE, Sizes.class, variableName);
+            } else if (String.class == primitiveClass) {
+                statements.addStatement("$L += $T.sizeOfString($L)", SIZE, Sizes.class, variableName);
+            } else {
+                statements.addStatement("$L += $T.$L($L)", SIZE, VarInts.class, "sizeOfZigZag" + Utils.toUpperCaseFirst(primitiveClass.getSimpleName()), variableName);
+            }
+            return;
+        }
+        // 变长整数
+        if (generation.varint && (int.class == primitiveClass || long.class == primitiveClass)) {
+            String writeAccess = "writeZigZag" + Utils.toUpperCaseFirst(primitiveClass.getSimpleName());
+            statements.addStatement("$T.$L($L, $L)", VarInts.class, writeAccess, streamName(SerializerBound.WRITE), variableName);
+            return;
+        }
+        if (generation.buffer) {
+            if (boolean.class == primitiveClass) {
+                statements.addStatement("$L.put((byte) ($L ? 1 : 0))", BUFFER, variableName);
+            } else if (byte.class == primitiveClass) {
+                statements.addStatement("$L.put($L)", BUFFER, variableName);
+            } else if (String.class == primitiveClass) {
+                statements.addStatement("$T.putString($L, $L)", ByteBuffers.class, BUFFER, variableName);
+            } else {
+                statements.addStatement("$L.put$L($L)", BUFFER, Utils.toUpperCaseFirst(primitiveClass.getSimpleName()), variableName);
+            }
+            return;
+        }
+        if (generation.stringDictionary && String.class == primitiveClass) {
+            statements.addStatement("$L.writeString($L, $L)", STRING_TABLE, SerializerBound.WRITE.paramName, variableName);
+            return;
+        }
         String writeAccess = "write" + Utils.toUpperCaseFirst(primitiveClass.getSimpleName());
         statements.addStatement("$L.$L($L)", SerializerBound.WRITE.paramName, writeAccess, variableName);
     }
 
+    /**
+     * 写一个长度(数组、集合、Map)，变长模式下用无符号变长int
+     * @param statements 方法体stats
+     * @param lengthName 长度
+     */
+    private void writeLength(MethodSpec.Builder statements, String lengthName) {
+        if (generation.varint && generation.sizing) {
+            statements.addStatement("$L += $T.sizeOfVarInt($L)", SIZE, VarInts.class, lengthName);
+        } else if (generation.varint) {
+            statements.addStatement("$T.writeVarInt($L, $L)", VarInts.class, streamName(SerializerBound.WRITE), lengthName);
+        } else {
+            writePrimitive(statements, int.class, lengthName);
+        }
+    }
+
     /**
      * 写一个数组
      * @param statements 方法体stats
@@ -311,19 +2759,31 @@ public class SerializerProcessor extends AbstractProcessor {
      */
     private void writeArray(MethodSpec.Builder statements, ArrayType type, String variableName) {
         // 先写一个布尔值标记集合是否为null
-        writePrimitive(statements, boolean.class, variableName + " != null");
+        writeNullFlag(statements, variableName);
         // 如果不为null则展开数组
         statements.beginControlFlow("if ($L != null)", variableName);
         // 先写一个长度
         String arrayLen = variableName + ".length";
-        writePrimitive(statements, int.class, arrayLen);
+        writeLength(statements, arrayLen);
+        // 数组子元素类型
+        Type elementType = type.elemtype;
+        // 定长基础类型数组直接按长度算
+        if (generation.sizing && elementType.getKind().isPrimitive() && getFixedSize(getPrimitiveClass(elementType)) > 0) {
+            statements.addStatement("$L += $L * $L", SIZE, arrayLen, getFixedSize(getPrimitiveClass(elementType)));
+            statements.endControlFlow();
+            return;
+        }
+        // 一维基础类型数组整块写
+        if (isBulkArray(SerializerBound.WRITE, elementType)) {
+            statements.addStatement(bulkStatement(SerializerBound.WRITE, elementType, variableName, arrayLen));
+            statements.endControlFlow();
+            return;
+        }
         // 然后for循环
         String stepName = variableName + "_i";
         statements.beginControlFlow("for (int $L = 0; $L < $L; ++$L)", stepName, stepName, arrayLen, stepName);
         // for循环内部
         String elementName = variableName + ELEMENT;
-        // 数组子元素类型
-        Type elementType = type.elemtype;
         // 访问数组元素
         String element = variableName + "[" + stepName + "]";
         // 多维数组递归
@@ -357,14 +2817,21 @@ public class SerializerProcessor extends AbstractProcessor {
      */
     private void writeCollection(MethodSpec.Builder statements, TypeMirror type, String variableName) {
         // 先写一个布尔值标记集合是否为null
-        writePrimitive(statements, boolean.class, variableName + " != null");
+        writeNullFlag(statements, variableName);
         // 如果不为null则展开List
         statements.beginControlFlow("if ($L != null)", variableName);
         // 写长度
-        writePrimitive(statements, int.class, variableName + ".size()");
+        writeLength(statements, variableName + ".size()");
         // for展开
         String elementName = variableName + ELEMENT;
         Type elementType = ((Type) type).getTypeArguments().head;
+        // 基础类型集合
+        Class<?> primitiveImpl = getPrimitiveCollectionType(type);
+        if (primitiveImpl != null) {
+            writePrimitiveList(statements, type, variableName, primitiveImpl);
+            statements.endControlFlow();
+            return;
+        }
         statements.beginControlFlow("for ($T $L : $L)", ClassName.get(elementType), elementName, variableName);
         // write Value
         writeVariable(statements, elementType, elementName);
@@ -372,6 +2839,46 @@ public class SerializerProcessor extends AbstractProcessor {
         statements.endControlFlow();
     }
 
+    /**
+     * 写一个Integer/Long集合，元素按基础类型紧凑写，不写null标记
+     * 是基础类型集合时直接按下标取值(或整块写)，否则拆箱遍历
+     * @param statements 方法体stats
+     * @param type 变量类型
+     * @param variableName 变量
+     * @param primitiveImpl 基础类型集合实现
+     */
+    private void writePrimitiveList(MethodSpec.Builder statements, TypeMirror type, String variableName, Class<?> primitiveImpl) {
+        Class<?> primitiveClass = Utils.PRIMITIVE_COLLECTION_MAP.get(primitiveImpl)[0];
+        // 定长的直接按元素个数算
+        if (generation.sizing && getFixedSize(primitiveClass) > 0) {
+            statements.addStatement("$L += $L.size() * $L", SIZE, variableName, getFixedSize(primitiveClass));
+            return;
+        }
+        TypeMirror primitiveType = types.getPrimitiveType(TypeKind.valueOf(primitiveClass.getSimpleName().toUpperCase()));
+        boolean declaredImpl = isDeclaredAs(type, primitiveImpl);
+        String listName = declaredImpl ? variableName : variableName + PRIMITIVE;
+        if (!declaredImpl) {
+            statements.beginControlFlow("if ($L instanceof $T)", variableName, primitiveImpl);
+            statements.addStatement("$T $L = ($T) $L", primitiveImpl, listName, primitiveImpl, variableName);
+        }
+        if (isBulkArray(SerializerBound.WRITE, primitiveType)) {
+            statements.addStatement(bulkStatement(SerializerBound.WRITE, primitiveType, listName + ".elements()", listName + ".size()"));
+        } else {
+            String stepName = variableName + "_i";
+            statements.beginControlFlow("for (int $L = 0; $L < $L.size(); ++$L)", stepName, stepName, listName, stepName);
+            writePrimitive(statements, primitiveClass, listName + ".get" + Utils.toUpperCaseFirst(primitiveClass.getSimpleName()) + "(" + stepName + ")");
+            statements.endControlFlow();
+        }
+        if (!declaredImpl) {
+            statements.nextControlFlow("else");
+            String elementName = variableName + ELEMENT;
+            statements.beginControlFlow("for ($T $L : $L)", ClassName.get(((Type) type).getTypeArguments().head), elementName, variableName);
+            writePrimitive(statements, primitiveClass, elementName);
+            statements.endControlFlow();
+            statements.endControlFlow();
+        }
+    }
+
     /**
      * 写一个map
      * @param statements 方法体stats
@@ -380,11 +2887,11 @@ public class SerializerProcessor extends AbstractProcessor {
      */
     private void writeMap(MethodSpec.Builder statements, TypeMirror type, String variableName) {
         // 先写一个布尔值标记集合是否为null
-        writePrimitive(statements, boolean.class, variableName + " != null");
+        writeNullFlag(statements, variableName);
         // 如果不为null则展开Map
         statements.beginControlFlow("if ($L != null)", variableName);
         // 写长度
-        writePrimitive(statements, int.class, variableName + ".size()");
+        writeLength(statements, variableName + ".size()");
         // 取泛型
         Type keyType = ((Type) type).getTypeArguments().head;
         Type valueType = ((Type) type).getTypeArguments().last();
@@ -392,6 +2899,13 @@ public class SerializerProcessor extends AbstractProcessor {
         String entryName = variableName + ELEMENT;
         TypeName keyTypeName = ClassName.get(keyType);
         TypeName valueTypeName = ClassName.get(valueType);
+        // 基础类型Map
+        Class<?> primitiveImpl = getPrimitiveCollectionType(type);
+        if (primitiveImpl != null) {
+            writePrimitiveMap(statements, type, variableName, primitiveImpl);
+            statements.endControlFlow();
+            return;
+        }
         statements.beginControlFlow("for ($T<$T, $T> $L : $L.entrySet())", Entry.class, keyTypeName, valueTypeName, entryName, variableName);
         // write Key
         writeMapArgs(statements, variableName + "Key", keyType, entryName + ".getKey()");
@@ -402,6 +2916,46 @@ public class SerializerProcessor extends AbstractProcessor {
         statements.endControlFlow();
     }
 
+    /**
+     * 写一个键值都是Integer/Long的Map，按基础类型紧凑写，不写null标记
+     * 是基础类型Map时按槽遍历，否则拆箱遍历
+     * @param statements 方法体stats
+     * @param type 变量类型
+     * @param variableName 变量
+     * @param primitiveImpl 基础类型Map实现
+     */
+    private void writePrimitiveMap(MethodSpec.Builder statements, TypeMirror type, String variableName, Class<?> primitiveImpl) {
+        Class<?> keyClass = Utils.PRIMITIVE_COLLECTION_MAP.get(primitiveImpl)[0];
+        Class<?> valueClass = Utils.PRIMITIVE_COLLECTION_MAP.get(primitiveImpl)[1];
+        // 定长的直接按元素个数算
+        if (generation.sizing && getFixedSize(keyClass) > 0 && getFixedSize(valueClass) > 0) {
+            statements.addStatement("$L += $L.size() * $L", SIZE, variableName, getFixedSize(keyClass) + getFixedSize(valueClass));
+            return;
+        }
+        boolean declaredImpl = isDeclaredAs(type, primitiveImpl);
+        String mapName = declaredImpl ? variableName : variableName + PRIMITIVE;
+        if (!declaredImpl) {
+            statements.beginControlFlow("if ($L instanceof $T)", variableName, primitiveImpl);
+            statements.addStatement("$T $L = ($T) $L", primitiveImpl, mapName, primitiveImpl, variableName);
+        }
+        String slotName = variableName + "_i";
+        statements.beginControlFlow("for (int $L = $L.firstSlot(); $L >= 0; $L = $L.nextSlot($L))", slotName, mapName, slotName, slotName, mapName, slotName);
+        writePrimitive(statements, keyClass, mapName + ".keyAt(" + slotName + ")");
+        writePrimitive(statements, valueClass, mapName + ".valueAt(" + slotName + ")");
+        statements.endControlFlow();
+        if (!declaredImpl) {
+            statements.nextControlFlow("else");
+            String entryName = variableName + ELEMENT;
+            Type keyType = ((Type) type).getTypeArguments().head;
+            Type valueType = ((Type) type).getTypeArguments().last();
+            statements.beginControlFlow("for ($T<$T, $T> $L : $L.entrySet())", Entry.class, ClassName.get(keyType), ClassName.get(valueType), entryName, variableName);
+            writePrimitive(statements, keyClass, entryName + ".getKey()");
+            writePrimitive(statements, valueClass, entryName + ".getValue()");
+            statements.endControlFlow();
+            statements.endControlFlow();
+        }
+    }
+
     /**
      * 写map的参数
      * @param statements 方法体stats
@@ -424,10 +2978,45 @@ public class SerializerProcessor extends AbstractProcessor {
      * @param variable 变量
      */
     private void writeSerializable(MethodSpec.Builder statements, TypeMirror type, String variable) {
+        boolean inline = generation.inlineElement != null && isNestedInline(type);
+        if (generation.sizing && !(inline && isFinal(type) && hasNestedSizeOf(type))) {
+            generation.unsupported = "嵌套对象由流的通用写写入，字节数未知，final类开启inlineNested后可以计算";
+            return;
+        }
         // 先写一个布尔值标记集合是否为null
-        writePrimitive(statements, boolean.class, variable + " != null");
+        writeNullFlag(statements, variable);
         statements.beginControlFlow("if ($L != null)", variable);
-        statements.addStatement("$L.$L($L)", SerializerBound.WRITE.paramName, SerializerBound.WRITE.serializerExec, variable);
+        if (generation.sizing) {
+            statements.addStatement("$L += $T.$L($L)", SIZE, getSerializerClassName(type), SIZE_OF, variable);
+        } else if (generation.buffer) {
+            // 缓冲区没有通用写，直接调用序列化类
+            if (!hasBuffer(type)) {
+                generation.unsupported = "嵌套对象" + type + "没有ByteBuffer读写";
+            }
+            statements.addStatement("$T.$L($L, $L)", getSerializerClassName(type), SerializerBound.WRITE.serializerExec, BUFFER, variable);
+        } else if (generation.referenceElement != null) {
+            // 出现过的写引用，类型正好是声明类型的内联写，其他的走通用写
+            if (isReferenceInline(type)) {
+                statements.beginControlFlow("if ($L.writeReference($L, $L, $T.class))", REFERENCE_TABLE, SerializerBound.WRITE.paramName, variable, TypeName.get(types.erasure(type)));
+                statements.addStatement("$T.$L($L, $L)", getSerializerClassName(type), SerializerBound.WRITE.serializerExec, SerializerBound.WRITE.paramName, variable);
+                statements.endControlFlow();
+            } else {
+                statements.addStatement("$L.writeReference($L, $L, null)", REFERENCE_TABLE, SerializerBound.WRITE.paramName, variable);
+            }
+        } else if (inline && isFinal(type)) {
+            statements.addStatement("$T.$L($L, $L)", getSerializerClassName(type), SerializerBound.WRITE.serializerExec, SerializerBound.WRITE.paramName, variable);
+        } else if (inline) {
+            // 运行时类型正好是声明类型的直接调用，子类仍走通用写
+            statements.beginControlFlow("if ($L.getClass() == $T.class)", variable, TypeName.get(types.erasure(type)));
+            writePrimitive(statements, boolean.class, "true");
+            statements.addStatement("$T.$L($L, $L)", getSerializerClassName(type), SerializerBound.WRITE.serializerExec, SerializerBound.WRITE.paramName, variable);
+            statements.nextControlFlow("else");
+            writePrimitive(statements, boolean.class, "false");
+            statements.addStatement("$L.$L($L)", SerializerBound.WRITE.paramName, SerializerBound.WRITE.serializerExec, variable);
+            statements.endControlFlow();
+        } else {
+            statements.addStatement("$L.$L($L)", SerializerBound.WRITE.paramName, SerializerBound.WRITE.serializerExec, variable);
+        }
         statements.endControlFlow();
     }
 
@@ -437,6 +3026,19 @@ public class SerializerProcessor extends AbstractProcessor {
      * @param variable 变量
      */
     private void writeObject(MethodSpec.Builder statements, String variable) {
+        if (generation.sizing) {
+            generation.unsupported = "对象由流写入，字节数未知";
+            return;
+        }
+        if (generation.buffer) {
+            generation.unsupported = "抽象类型或非Serializable类型的字段需要流的通用写";
+            return;
+        }
+        // 多态分发
+        if (dispatcher != null) {
+            statements.addStatement("$T.$L($L, $L)", dispatcher, SerializerBound.WRITE.serializerExec, SerializerBound.WRITE.paramName, variable);
+            return;
+        }
         statements.addStatement("$L.write($L)", SerializerBound.WRITE.paramName, variable);
     }
 
@@ -486,7 +3088,7 @@ public class SerializerProcessor extends AbstractProcessor {
         // 包装类型得先读个布尔值
         if (isWrapper(type)) {
             // 先读一个标志
-            statements.beginControlFlow("if ($L)", doReadAnPrimitive(boolean.class));
+            statements.beginControlFlow("if ($L)", readNullFlag(variable));
             // 如果不为null则继续读
             readPrimitive(statements, getPrimitiveClass(type), variable);
             statements.nextControlFlow("else");
@@ -513,9 +3115,55 @@ public class SerializerProcessor extends AbstractProcessor {
      * @param primitiveClass 基础类型
      * @return JCExpressionStatement
      */
-    private String doReadAnPrimitive(Class<?> primitiveClass) {
+    private CodeBlock doReadAnPrimitive(Class<?> primitiveClass) {
+        // 变长整数
+        if (generation.varint && (int.class == primitiveClass || long.class == primitiveClass)) {
+            String readAccess = "readZigZag" + Utils.toUpperCaseFirst(primitiveClass.getSimpleName());
+            return CodeBlock.of("$T.$L($L)", VarInts.class, readAccess, streamName(SerializerBound.READ));
+        }
+        if (generation.buffer) {
+            if (boolean.class == primitiveClass) {
+                return CodeBlock.of("$L.get() != 0", BUFFER);
+            } else if (byte.class == primitiveClass) {
+                return CodeBlock.of("$L.get()", BUFFER);
+            } else if (String.class == primitiveClass && generation.stringIntern) {
+                return CodeBlock.of("$T.intern($T.getString($L))", StringTable.class, ByteBuffers.class, BUFFER);
+            } else if (String.class == primitiveClass) {
+                return CodeBlock.of("$T.getString($L)", ByteBuffers.class, BUFFER);
+            }
+            return CodeBlock.of("$L.get$L()", BUFFER, Utils.toUpperCaseFirst(primitiveClass.getSimpleName()));
+        }
+        if (String.class == primitiveClass && generation.stringDictionary) {
+            return CodeBlock.of("$L.readString($L, $L)", STRING_TABLE, SerializerBound.READ.paramName, generation.stringIntern);
+        }
+        if (String.class == primitiveClass && generation.stringIntern) {
+            return CodeBlock.of("$T.intern($L.readString())", StringTable.class, SerializerBound.READ.paramName);
+        }
         String readAccess = "read" + Utils.toUpperCaseFirst(primitiveClass.getSimpleName());
-        return SerializerBound.READ.paramName + "." + readAccess + "()";
+        return CodeBlock.of("$L.$L()", SerializerBound.READ.paramName, readAccess);
+    }
+
+    /**
+     * 读一个长度(数组、集合、Map)
+     * @return 读长度的表达式
+     */
+    private CodeBlock doReadLength() {
+        if (generation.varint) {
+            return CodeBlock.of("$T.readVarInt($L)", VarInts.class, streamName(SerializerBound.READ));
+        }
+        return doReadAnPrimitive(int.class);
+    }
+
+    /**
+     * 读一个长度到局部变量，负数直接报错
+     * @param statements 方法体stats
+     * @param lenName 长度变量名
+     */
+    private void readLength(MethodSpec.Builder statements, String lenName) {
+        statements.addStatement("int $L = $L", lenName, doReadLength());
+        statements.beginControlFlow("if ($L < 0)", lenName);
+        statements.addStatement("throw new $T($S + $L)", generation.buffer ? IllegalStateException.class : IOException.class, "negative length: ", lenName);
+        statements.endControlFlow();
     }
 
     /**
@@ -536,15 +3184,28 @@ public class SerializerProcessor extends AbstractProcessor {
     private void readArray(MethodSpec.Builder statements, ArrayType type, String variable) {
         // 数组子元素类型
         Type elementType = type.elemtype;
-        TypeName arrayType = ClassName.get(elementType);
         // 先读一个标志
-        statements.beginControlFlow("if ($L)", doReadAnPrimitive(boolean.class));
+        statements.beginControlFlow("if ($L)", readNullFlag(variable));
         // 如果不为null则展开数组
         String lenName = variable + "Len";
         // 读出数组长度
-        statements.addStatement("int $L = $L", lenName, doReadAnPrimitive(int.class));
-        // 再new一个数组
-        statements.addStatement("$L = new $T[$L]", variable, arrayType, lenName);
+        readLength(statements, lenName);
+        // 再new一个数组，复用时长度一样的不new
+        if (variable.equals(generation.reuseVariable)) {
+            statements.beginControlFlow("if ($L == null || $L.length != $L)", variable, variable, lenName);
+            statements.addStatement("$L = $L", variable, newArray(type, lenName));
+            statements.endControlFlow();
+        } else {
+            statements.addStatement("$L = $L", variable, newArray(type, lenName));
+        }
+        // 一维基础类型数组整块读
+        if (isBulkArray(SerializerBound.READ, elementType)) {
+            statements.addStatement(bulkStatement(SerializerBound.READ, elementType, variable, lenName));
+            statements.nextControlFlow("else");
+            readNull(statements, variable);
+            statements.endControlFlow();
+            return;
+        }
         // 索引 name_i
         String stepName = variable + "_i";
         // 然后for循环
@@ -554,16 +3215,12 @@ public class SerializerProcessor extends AbstractProcessor {
 
         // 多维数组递归
         if (isArray(elementType)) {
-            statements.addStatement("$T $L = null", ClassName.get(elementType), variable);
+            statements.addStatement("$T $L", ClassName.get(elementType), elementName);
             readArray(statements, (ArrayType) elementType, elementName);
             statements.addStatement("$L[$L] = $L", variable, stepName, elementName);
-            statements.endControlFlow();
-            statements.endControlFlow();
-            return;
-        }
-        // 基础类型直接读
-        if (isPrimitiveType(elementType)) {
-            if (isWrapper(type)) {
+        } else if (isPrimitiveType(elementType)) {
+            // 基础类型直接读
+            if (isWrapper(elementType)) {
                 // 先读一个标志
                 statements.beginControlFlow("if ($L)", doReadAnPrimitive(boolean.class));
                 // 如果不为null则继续读
@@ -587,7 +3244,7 @@ public class SerializerProcessor extends AbstractProcessor {
             readMap(statements, elementType, elementName);
             statements.addStatement("$L[$L] = $L", variable, stepName, elementName);
         } else {
-            statements.addStatement("$L[$L] = $L.read()", variable, stepName, SerializerBound.READ.paramName);
+            statements.addStatement("$L[$L] = $L", variable, stepName, doReadObject());
         }
         statements.endControlFlow();
         statements.nextControlFlow("else");
@@ -595,6 +3252,96 @@ public class SerializerProcessor extends AbstractProcessor {
         statements.endControlFlow();
     }
 
+    /**
+     * new一个数组，多维数组只指定第一维的长度 new int[len][]
+     * @param type 数组类型
+     * @param lenName 长度
+     * @return new数组的表达式
+     */
+    private CodeBlock newArray(ArrayType type, String lenName) {
+        TypeMirror componentType = Utils.erasureArray(type);
+        StringBuilder dimensions = new StringBuilder();
+        for (Type elementType = type.elemtype; isArray(elementType); elementType = ((ArrayType) elementType).elemtype) {
+            dimensions.append("[]");
+        }
+        return CodeBlock.of("new $T[$L]$L", ClassName.get(types.erasure(componentType)), lenName, dimensions);
+    }
+
+    /**
+     * 是否能整块读写的一维基础类型数组，需要流支持 writeInts(int[], int, int) / readInts(int[], int, int) 这类批量方法
+     * @param bound 序列化方向
+     * @param elementType 数组元素类型
+     * @return 是 true
+     */
+    private boolean isBulkArray(SerializerBound bound, TypeMirror elementType) {
+        if (!elementType.getKind().isPrimitive()) {
+            return false;
+        }
+        Class<?> primitiveClass = getPrimitiveClass(elementType);
+        // 变长编码的逐个写
+        if (generation.varint && (int.class == primitiveClass || long.class == primitiveClass)) {
+            return false;
+        }
+        // 缓冲区都支持整块读写
+        if (generation.buffer) {
+            return true;
+        }
+        String methodName = getBulkMethodName(bound, elementType);
+        return bulkMethodMap.computeIfAbsent(bound.getStreamClass() + "." + methodName, k -> hasBulkMethod(bound, methodName, elementType));
+    }
+
+    /**
+     * 整块读写基础类型数组的语句
+     * @param bound 序列化方向
+     * @param elementType 数组元素类型
+     * @param array 数组
+     * @param length 长度
+     * @return 语句
+     */
+    private CodeBlock bulkStatement(SerializerBound bound, TypeMirror elementType, String array, String length) {
+        if (generation.buffer) {
+            String methodName = (bound == SerializerBound.WRITE ? "put" : "get") + Utils.toUpperCaseFirst(getPrimitiveClass(elementType).getSimpleName()) + "s";
+            return CodeBlock.of("$T.$L($L, $L, 0, $L)", ByteBuffers.class, methodName, BUFFER, array, length);
+        }
+        return CodeBlock.of("$L.$L($L, 0, $L)", bound.paramName, getBulkMethodName(bound, elementType), array, length);
+    }
+
+    /**
+     * 批量读写方法名 writeInts readInts
+     * @param bound 序列化方向
+     * @param elementType 数组元素类型
+     * @return 方法名
+     */
+    private String getBulkMethodName(SerializerBound bound, TypeMirror elementType) {
+        return bound.serializerExec + Utils.toUpperCaseFirst(getPrimitiveClass(elementType).getSimpleName()) + "s";
+    }
+
+    /**
+     * 流中是否有批量读写方法 xxx(T[] array, int offset, int length)
+     * @param bound 序列化方向
+     * @param methodName 方法名
+     * @param elementType 数组元素类型
+     * @return 有 true
+     */
+    private boolean hasBulkMethod(SerializerBound bound, String methodName, TypeMirror elementType) {
+        TypeElement streamElement = elements.getTypeElement(bound.getStreamClass());
+        if (streamElement == null) {
+            return false;
+        }
+        TypeMirror arrayType = types.getArrayType(elementType);
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(streamElement))) {
+            if (!method.getSimpleName().contentEquals(methodName) || !method.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            java.util.List<? extends VariableElement> params = method.getParameters();
+            if (params.size() == 3 && types.isSameType(params.get(0).asType(), arrayType)
+                    && params.get(1).asType().getKind() == TypeKind.INT && params.get(2).asType().getKind() == TypeKind.INT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 获取集合类型
      * @param type 类型
@@ -610,6 +3357,92 @@ public class SerializerProcessor extends AbstractProcessor {
         return ArrayList.class;
     }
 
+    /**
+     * new一个集合或Map，按长度预分配容量，避免读的过程中扩容
+     * 预分配不超过 MAX_INITIAL_CAPACITY，更长的边读边扩容，错误的长度不会一次分配出大数组；
+     * HashMap、HashSet按负载因子放大容量，没有容量构造方法的用无参构造
+     * @param implType 实现类型
+     * @param lenName 长度
+     * @return new集合的表达式
+     */
+    private CodeBlock newCollection(TypeMirror implType, String lenName) {
+        ClassName implName = ClassName.get((TypeElement) types.asElement(implType));
+        if (!hasCapacityConstructor(implType)) {
+            return CodeBlock.of("new $T<>()", implName);
+        }
+        if (isAssignableFrom(implType, HashMap.class) || isAssignableFrom(implType, HashSet.class)) {
+            return CodeBlock.of("new $T<>((int) ($T.min($L, $L) / $Lf) + 1)", implName, Math.class, lenName, MAX_INITIAL_CAPACITY, HASH_LOAD_FACTOR);
+        }
+        return CodeBlock.of("new $T<>($T.min($L, $L))", implName, Math.class, lenName, MAX_INITIAL_CAPACITY);
+    }
+
+    /**
+     * 是否有 public Xxx(int initialCapacity) 构造方法
+     * @param type 类型
+     * @return 有 true
+     */
+    private boolean hasCapacityConstructor(TypeMirror type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(types.asElement(type).getEnclosedElements())) {
+            java.util.List<? extends VariableElement> params = constructor.getParameters();
+            if (constructor.getModifiers().contains(Modifier.PUBLIC) && params.size() == 1 && params.get(0).asType().getKind() == TypeKind.INT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取类的类型
+     * @param clazz 类
+     * @return TypeMirror
+     */
+    private TypeMirror getTypeMirror(Class<?> clazz) {
+        return elements.getTypeElement(clazz.getCanonicalName()).asType();
+    }
+
+    /**
+     * 获取Integer/Long集合对应的基础类型集合实现，未开启或不支持时返回null
+     * 支持元素为Integer/Long的List、Collection，键值为Integer/Long的Map，且实现类要能赋值给声明的类型
+     * @param type 集合类型
+     * @return 基础类型集合实现类
+     */
+    private Class<?> getPrimitiveCollectionType(TypeMirror type) {
+        // 直接声明成基础类型集合的不管是否开启
+        for (Class<?> primitiveImpl : Utils.PRIMITIVE_COLLECTION_MAP.keySet()) {
+            if (isDeclaredAs(type, primitiveImpl)) {
+                return primitiveImpl;
+            }
+        }
+        if (!generation.primitiveCollection) {
+            return null;
+        }
+        java.util.List<Type> typeArgs = ((Type) type).getTypeArguments();
+        Class<?>[] argClasses = new Class<?>[typeArgs.size()];
+        for (int i = 0; i < argClasses.length; ++i) {
+            Type typeArg = typeArgs.get(i);
+            if (typeArg.getKind() != TypeKind.DECLARED || !isWrapper(typeArg)) {
+                return null;
+            }
+            argClasses[i] = getPrimitiveClass(typeArg);
+        }
+        for (Entry<Class<?>, Class<?>[]> entry : Utils.PRIMITIVE_COLLECTION_MAP.entrySet()) {
+            if (Arrays.equals(entry.getValue(), argClasses) && types.isAssignable(getTypeMirror(entry.getKey()), types.erasure(type))) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 声明的类型是否就是某个类
+     * @param type 声明的类型
+     * @param clazz 类
+     * @return 是 true
+     */
+    private boolean isDeclaredAs(TypeMirror type, Class<?> clazz) {
+        return types.erasure(type).toString().equals(clazz.getCanonicalName());
+    }
+
     /**
      * 读一个Collection
      * @param statements 方法体stats
@@ -617,43 +3450,133 @@ public class SerializerProcessor extends AbstractProcessor {
      * @param variable 变量
      */
     private void readCollection(MethodSpec.Builder statements, TypeMirror type, String variable) {
-        statements.beginControlFlow("if ($L)", doReadAnPrimitive(boolean.class));
+        statements.beginControlFlow("if ($L)", readNullFlag(variable));
         // 集合类型
         Type collectionType = (Type) type;
         // for展开
         Type elementType = collectionType.getTypeArguments().head;
-        // 泛型参数
-        TypeName listImpl;
         // 读出数组长度
         String lenName = variable + "Len";
-        statements.addStatement("int $L = $L", lenName, doReadAnPrimitive(int.class));
-        // 声明的是接口
-        if (collectionType.isInterface()) {
-            listImpl = ClassName.get(getCollectionType(collectionType));
-            // new一个List
-            statements.addStatement("$L = new $L<>($L)", variable, listImpl, lenName);
-        } else {
-            listImpl = ClassName.get(types.erasure(collectionType));
-            // new一个List
-            statements.addStatement("$L = new $L<>()", variable, listImpl);
-        }
-        // 索引 name_i
+        readLength(statements, lenName);
+        // 基础类型集合
+        Class<?> primitiveImpl = getPrimitiveCollectionType(type);
+        if (primitiveImpl != null) {
+            readPrimitiveList(statements, variable, lenName, primitiveImpl);
+            statements.nextControlFlow("else");
+            readNull(statements, variable);
+            statements.endControlFlow();
+            return;
+        }
+        // 声明的是接口则选一个默认实现
+        TypeMirror listImpl = collectionType.isInterface() ? getTypeMirror(getCollectionType(collectionType)) : collectionType;
+        // new一个List
+        newOrClear(statements, variable, listImpl, newCollection(listImpl, lenName));
+        // 索引 name_i
+        String stepName = variable + "_i";
+        // for循环
+        statements.beginControlFlow("for (int $L = 0; $L < $L; ++$L)", stepName, stepName, lenName, stepName);
+        // 如果是基础类型直接add
+        if (elementType.getKind().isPrimitive()) {
+            statements.addStatement("$L.add($L)", variable, doReadAnPrimitive(getPrimitiveClass(elementType)));
+        } else {
+            String elementName = variable + ELEMENT;
+            statements.addStatement("$T $L", ClassName.get(elementType), elementName);
+            readVariable(statements, elementType, elementName);
+            statements.addStatement("$L.add($L)", variable, elementName);
+        }
+        statements.endControlFlow();
+        statements.nextControlFlow("else");
+        readNull(statements, variable);
+        statements.endControlFlow();
+    }
+
+    /**
+     * 流式读一个集合或Map，与readCollection、readMap读同样的格式，元素读出后直接交给visitor
+     * @param statements 方法体stats
+     * @param type 变量类型
+     * @param variable 变量
+     */
+    private void readStreaming(MethodSpec.Builder statements, TypeMirror type, String variable) {
+        statements.beginControlFlow("if ($L)", readNullFlag(variable));
+        String lenName = variable + "Len";
+        readLength(statements, lenName);
         String stepName = variable + "_i";
-        // for循环
         statements.beginControlFlow("for (int $L = 0; $L < $L; ++$L)", stepName, stepName, lenName, stepName);
-        // 如果是基础类型直接add
-        if (elementType.getKind().isPrimitive()) {
-            statements.addStatement("$L.add($L)", variable, doReadAnPrimitive(getPrimitiveClass(elementType)));
+        Class<?> primitiveImpl = getPrimitiveCollectionType(type);
+        if (primitiveImpl != null) {
+            Class<?>[] argClasses = Utils.PRIMITIVE_COLLECTION_MAP.get(primitiveImpl);
+            if (argClasses.length == 1) {
+                statements.addStatement("$L.accept($L)", VISITOR, doReadAnPrimitive(argClasses[0]));
+            } else {
+                statements.addStatement("$L.accept($L, $L)", VISITOR, doReadAnPrimitive(argClasses[0]), doReadAnPrimitive(argClasses[1]));
+            }
+        } else if (isMap(type)) {
+            Type mapType = (Type) type;
+            Type keyType = mapType.getTypeArguments().head;
+            Type valueType = mapType.getTypeArguments().last();
+            String keyName = variable + "Key";
+            String valueName = variable + "Value";
+            statements.addStatement("$T $L", ClassName.get(keyType), keyName);
+            readVariable(statements, keyType, keyName);
+            statements.addStatement("$T $L", ClassName.get(valueType), valueName);
+            readVariable(statements, valueType, valueName);
+            statements.addStatement("$L.accept($L, $L)", VISITOR, keyName, valueName);
         } else {
+            Type elementType = ((Type) type).getTypeArguments().head;
             String elementName = variable + ELEMENT;
             statements.addStatement("$T $L", ClassName.get(elementType), elementName);
             readVariable(statements, elementType, elementName);
-            statements.addStatement("$L.add($L)", variable, elementName);
+            statements.addStatement("$L.accept($L)", VISITOR, elementName);
         }
         statements.endControlFlow();
+        statements.endControlFlow();
+    }
+
+    /**
+     * new一个集合或Map，readInto中字段原来的集合、Map清空后复用
+     * 只复用与new出来的实现类完全相同的，getter返回的不可变视图、Arrays.asList等不能clear、add的重新new
+     * @param statements 方法体stats
+     * @param variable 变量
+     * @param implType 实现类
+     * @param newExpression new的表达式
+     */
+    private void newOrClear(MethodSpec.Builder statements, String variable, TypeMirror implType, CodeBlock newExpression) {
+        if (!variable.equals(generation.reuseVariable)) {
+            statements.addStatement("$L = $L", variable, newExpression);
+            return;
+        }
+        statements.beginControlFlow("if ($L != null && $L.getClass() == $T.class)", variable, variable, TypeName.get(types.erasure(implType)));
+        statements.addStatement("$L.clear()", variable);
         statements.nextControlFlow("else");
-        readNull(statements, variable);
+        statements.addStatement("$L = $L", variable, newExpression);
+        statements.endControlFlow();
+    }
+
+    /**
+     * 读一个基础类型集合
+     * @param statements 方法体stats
+     * @param variable 变量
+     * @param lenName 长度
+     * @param primitiveImpl 基础类型集合实现
+     */
+    private void readPrimitiveList(MethodSpec.Builder statements, String variable, String lenName, Class<?> primitiveImpl) {
+        Class<?> primitiveClass = Utils.PRIMITIVE_COLLECTION_MAP.get(primitiveImpl)[0];
+        TypeMirror primitiveType = types.getPrimitiveType(TypeKind.valueOf(primitiveClass.getSimpleName().toUpperCase()));
+        // 整块读到数组再包装
+        if (isBulkArray(SerializerBound.READ, primitiveType)) {
+            String arrayName = variable + "Array";
+            statements.addStatement("$T[] $L = new $T[$L]", primitiveClass, arrayName, primitiveClass, lenName);
+            statements.addStatement(bulkStatement(SerializerBound.READ, primitiveType, arrayName, lenName));
+            statements.addStatement("$L = new $T($L, $L)", variable, primitiveImpl, arrayName, lenName);
+            return;
+        }
+        String listName = variable + PRIMITIVE;
+        statements.addStatement("$T $L = new $T($T.min($L, $L))", primitiveImpl, listName, primitiveImpl, Math.class, lenName, MAX_INITIAL_CAPACITY);
+        String stepName = variable + "_i";
+        statements.beginControlFlow("for (int $L = 0; $L < $L; ++$L)", stepName, stepName, lenName, stepName);
+        statements.addStatement("$L.add$L($L)", listName, Utils.toUpperCaseFirst(primitiveClass.getSimpleName()), doReadAnPrimitive(primitiveClass));
         statements.endControlFlow();
+        statements.addStatement("$L = $L", variable, listName);
     }
 
     /**
@@ -663,28 +3586,37 @@ public class SerializerProcessor extends AbstractProcessor {
      * @param variable 变量
      */
     private void readMap(MethodSpec.Builder statements, TypeMirror type, String variable) {
-        statements.beginControlFlow("if ($L)", doReadAnPrimitive(boolean.class));
+        statements.beginControlFlow("if ($L)", readNullFlag(variable));
         // 读出数组长度
         String lenName = variable + "Len";
-        statements.addStatement("int $L = $L", lenName, doReadAnPrimitive(int.class));
+        readLength(statements, lenName);
         // 集合类型
         Type mapType = (Type) type;
         Type keyType = mapType.getTypeArguments().head;
         Type valueType = mapType.getTypeArguments().last();
+        // 基础类型Map
+        Class<?> primitiveImpl = getPrimitiveCollectionType(type);
+        if (primitiveImpl != null) {
+            String mapName = variable + PRIMITIVE;
+            statements.addStatement("$T $L = new $T($T.min($L, $L))", primitiveImpl, mapName, primitiveImpl, Math.class, lenName, MAX_INITIAL_CAPACITY);
+            String stepName = variable + "_i";
+            statements.beginControlFlow("for (int $L = 0; $L < $L; ++$L)", stepName, stepName, lenName, stepName);
+            Class<?>[] argClasses = Utils.PRIMITIVE_COLLECTION_MAP.get(primitiveImpl);
+            statements.addStatement("$L.put($L, $L)", mapName, doReadAnPrimitive(argClasses[0]), doReadAnPrimitive(argClasses[1]));
+            statements.endControlFlow();
+            statements.addStatement("$L = $L", variable, mapName);
+            statements.nextControlFlow("else");
+            readNull(statements, variable);
+            statements.endControlFlow();
+            return;
+        }
         // 泛型参数
         ListBuffer<JCExpression> typeArgs = new ListBuffer<>();
         mapType.getTypeArguments().forEach(t -> typeArgs.append(treeMaker.Type(t)));
-        TypeName mapImpl;
         // 声明的是接口，则统一用HashMap实例化
-        if (mapType.isInterface()) {
-            mapImpl = ClassName.get(HashMap.class);
-            // new一个Map
-            statements.addStatement("$L = new $L<>($L)", variable, mapImpl, lenName);
-        } else {
-            mapImpl = ClassName.get(types.erasure(mapType));
-            // new一个Map
-            statements.addStatement("$L = new $L<>()", variable, mapImpl);
-        }
+        TypeMirror mapImpl = mapType.isInterface() ? getTypeMirror(HashMap.class) : mapType;
+        // new一个Map
+        newOrClear(statements, variable, mapImpl, newCollection(mapImpl, lenName));
         // for展开
         // 索引 name_i
         String stepName = variable + "_i";
@@ -712,20 +3644,204 @@ public class SerializerProcessor extends AbstractProcessor {
      */
     private void readSerializable(MethodSpec.Builder statements, TypeMirror type, String variable) {
         // 先读一个bool
-        statements.beginControlFlow("if ($L)", doReadAnPrimitive(boolean.class));
-        statements.addStatement("$L = $L.$L()", variable, SerializerBound.READ.paramName, SerializerBound.READ.serializerExec);
+        statements.beginControlFlow("if ($L)", readNullFlag(variable));
+        if (generation.buffer) {
+            // 缓冲区没有通用读，new一个再调用序列化类
+            TypeElement element = (TypeElement) types.asElement(types.erasure(type));
+            if (!hasBuffer(type)) {
+                generation.unsupported = "嵌套对象" + type + "没有ByteBuffer读写";
+            } else if (!hasNoArgsConstructor(element, elements.getPackageOf(element).equals(elements.getPackageOf(generation.bufferElement)))) {
+                generation.unsupported = "嵌套对象" + type + "没有可访问的无参构造方法";
+            }
+            TypeName typeName = TypeName.get(types.erasure(type));
+            if (variable.equals(generation.reuseVariable)) {
+                // 复用原来的嵌套对象，类型不一致的重新new
+                statements.beginControlFlow("if ($L == null || $L.getClass() != $T.class)", variable, variable, typeName);
+                statements.addStatement("$L = new $T()", variable, typeName);
+                statements.endControlFlow();
+                String exec = hasReadInto(type) ? READ_INTO : SerializerBound.READ.serializerExec;
+                statements.addStatement("$T.$L($L, $L)", getSerializerClassName(type), exec, BUFFER, variable);
+            } else {
+                statements.addStatement("$L = new $T()", variable, typeName);
+                statements.addStatement("$T.$L($L, $L)", getSerializerClassName(type), SerializerBound.READ.serializerExec, BUFFER, variable);
+            }
+        } else if (generation.referenceElement != null) {
+            statements.addStatement("$L = $L.readReference($L)", variable, REFERENCE_TABLE, SerializerBound.READ.paramName);
+            if (isReferenceInline(type)) {
+                // 内联的先登记再读字段，环上引用回来的能找到这个对象
+                statements.beginControlFlow("if ($L == null)", variable);
+                statements.addStatement("$L = new $T()", variable, TypeName.get(types.erasure(type)));
+                statements.addStatement("$L.add($L)", REFERENCE_TABLE, variable);
+                statements.addStatement("$T.$L($L, $L)", getSerializerClassName(type), SerializerBound.READ.serializerExec, SerializerBound.READ.paramName, variable);
+                statements.endControlFlow();
+            }
+        } else if (generation.inlineElement != null && isNestedInline(type)) {
+            boolean exact = isFinal(type);
+            if (!exact) {
+                statements.beginControlFlow("if ($L)", doReadAnPrimitive(boolean.class));
+            }
+            TypeName typeName = TypeName.get(types.erasure(type));
+            if (variable.equals(generation.reuseVariable)) {
+                statements.beginControlFlow("if ($L == null || $L.getClass() != $T.class)", variable, variable, typeName);
+                statements.addStatement("$L = new $T()", variable, typeName);
+                statements.endControlFlow();
+                String exec = hasReadInto(type) ? READ_INTO : SerializerBound.READ.serializerExec;
+                statements.addStatement("$T.$L($L, $L)", getSerializerClassName(type), exec, SerializerBound.READ.paramName, variable);
+            } else {
+                statements.addStatement("$L = new $T()", variable, typeName);
+                statements.addStatement("$T.$L($L, $L)", getSerializerClassName(type), SerializerBound.READ.serializerExec, SerializerBound.READ.paramName, variable);
+            }
+            if (!exact) {
+                statements.nextControlFlow("else");
+                statements.addStatement("$L = $L.$L()", variable, SerializerBound.READ.paramName, SerializerBound.READ.serializerExec);
+                statements.endControlFlow();
+            }
+        } else {
+            statements.addStatement("$L = $L.$L()", variable, SerializerBound.READ.paramName, SerializerBound.READ.serializerExec);
+        }
         statements.nextControlFlow("else");
         readNull(statements, variable);
         statements.endControlFlow();
     }
 
+    /**
+     * 类是否有按字典编码的字符串字段(包括数组、集合、Map中的字符串)
+     * @param classWrapper 类包装
+     * @return 有 true
+     */
+    private boolean hasStringDictionary(JavaClassWrapper classWrapper) {
+        Result<Boolean> result = new Result<>(false);
+        classWrapper.forEach(variableWrapper -> {
+            if (SerializerOption.STRING_DICTIONARY.isEnabled(options, variableWrapper.element) && containsString(variableWrapper.element.asType())) {
+                result.value = true;
+            }
+        });
+        return result.value;
+    }
+
+    /**
+     * 类型中是否有字符串，数组元素、泛型参数递归查找
+     * @param type 类型
+     * @return 有 true
+     */
+    private boolean containsString(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return containsString(((ArrayType) type).getComponentType());
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        if (String.class.getName().equals(types.erasure(type).toString())) {
+            return true;
+        }
+        for (TypeMirror typeArgument : ((DeclaredType) type).getTypeArguments()) {
+            if (containsString(typeArgument)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 嵌套对象能否直接调用序列化类读写，需要能new出来
+     * @param type 类型
+     * @return 能 true
+     */
+    private boolean isNestedInline(TypeMirror type) {
+        if (isAbstract(type)) {
+            return false;
+        }
+        TypeElement element = (TypeElement) types.asElement(types.erasure(type));
+        return hasNoArgsConstructor(element, elements.getPackageOf(element).equals(elements.getPackageOf(generation.inlineElement)));
+    }
+
+    /**
+     * 是否final类，final类的嵌套对象不用写类型标记
+     * @param type 类型
+     * @return 是 true
+     */
+    private boolean isFinal(TypeMirror type) {
+        return types.asElement(types.erasure(type)).getModifiers().contains(Modifier.FINAL);
+    }
+
+    /**
+     * 直接调用的嵌套对象是否有sizeOf，嵌套对象在生成sizeOf前已经算好(见makeSizeOfMethodSpec)
+     * @param type 类型
+     * @return 有 true
+     */
+    private boolean hasNestedSizeOf(TypeMirror type) {
+        TypeElement element = (TypeElement) types.asElement(types.erasure(type));
+        // 自己引用自己
+        return element.equals(generation.inlineElement) || Boolean.TRUE.equals(sizeOfMap.get(element.getQualifiedName().toString()));
+    }
+
+    /**
+     * 遍历类型中可以直接调用序列化类的嵌套对象类型，数组元素、泛型参数递归查找
+     * @param type 类型
+     * @param consumer 嵌套对象类型
+     */
+    private void forEachNested(TypeMirror type, Consumer<TypeMirror> consumer) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            forEachNested(((ArrayType) type).getComponentType(), consumer);
+            return;
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return;
+        }
+        if (isSerializable(type) && !isAbstract(type)) {
+            consumer.accept(types.erasure(type));
+            return;
+        }
+        for (TypeMirror typeArgument : ((DeclaredType) type).getTypeArguments()) {
+            forEachNested(typeArgument, consumer);
+        }
+    }
+
+    /**
+     * 引用共享模式下嵌套对象能否内联读写，需要能new出来
+     * @param type 类型
+     * @return 能 true
+     */
+    private boolean isReferenceInline(TypeMirror type) {
+        if (isAbstract(type)) {
+            return false;
+        }
+        TypeElement element = (TypeElement) types.asElement(types.erasure(type));
+        return hasNoArgsConstructor(element, elements.getPackageOf(element).equals(elements.getPackageOf(generation.referenceElement)));
+    }
+
+    /**
+     * 类型对应的序列化类
+     * @param type 类型
+     * @return 序列化类名
+     */
+    private ClassName getSerializerClassName(TypeMirror type) {
+        return ClassName.bestGuess(types.erasure(type).toString() + "IOSerializer");
+    }
+
     /**
      * 读一个对象
      * @param statements 方法体stats
      * @param variable 变量
      */
     private void readObject(MethodSpec.Builder statements, String variable) {
-        statements.addStatement("$L = $L.read()", variable, SerializerBound.READ.paramName);
+        statements.addStatement("$L = $L", variable, doReadObject());
+    }
+
+    /**
+     * 读一个对象
+     * @return 读对象的表达式
+     */
+    private CodeBlock doReadObject() {
+        if (generation.buffer) {
+            generation.unsupported = "抽象类型或非Serializable类型的字段需要流的通用读";
+            return CodeBlock.of("null");
+        }
+        // 多态分发
+        if (dispatcher != null) {
+            return CodeBlock.of("$T.$L($L)", dispatcher, SerializerBound.READ.serializerExec, SerializerBound.READ.paramName);
+        }
+        return CodeBlock.of("$L.read()", SerializerBound.READ.paramName);
     }
 
     /**
@@ -749,16 +3865,96 @@ public class SerializerProcessor extends AbstractProcessor {
      * @return 可以 true
      */
     private boolean isSerializable(TypeMirror type) {
-        if (types.asElement(type).getAnnotation(Serializable.class) != null) {
-            return true;
+        return getTypeCategory(type).contains(TypeCategory.SERIALIZABLE);
+    }
+
+    /**
+     * 获取类型分类，按擦除后的类型缓存
+     * @param type 类型
+     * @return 分类
+     */
+    private Set<TypeCategory> getTypeCategory(TypeMirror type) {
+        TypeMirror erasureType = types.erasure(type);
+        String typeName = erasureType.toString();
+        Set<TypeCategory> categories = typeCategoryMap.get(typeName);
+        if (categories == null) {
+            categories = classify(erasureType);
+            typeCategoryMap.put(typeName, categories);
         }
-        // 递归查找父类
-        for (TypeMirror superType : types.directSupertypes(type)) {
-            if (isSerializable(superType)) {
-                return true;
+        return categories;
+    }
+
+    /**
+     * 计算类型分类
+     * @param erasureType 擦除后的类型
+     * @return 分类
+     */
+    private Set<TypeCategory> classify(TypeMirror erasureType) {
+        Set<TypeCategory> categories = EnumSet.noneOf(TypeCategory.class);
+        if (erasureType.getKind().isPrimitive()) {
+            categories.add(TypeCategory.PRIMITIVE);
+            return categories;
+        }
+        if (erasureType.getKind() == TypeKind.ARRAY) {
+            categories.add(TypeCategory.ARRAY);
+            return categories;
+        }
+        if (Utils.WRAPPER_PRIMITIVE_MAP.containsKey(Utils.getTypeName(erasureType.toString()))) {
+            categories.add(TypeCategory.WRAPPER);
+        }
+        Element element = types.asElement(erasureType);
+        if (element == null) {
+            return categories;
+        }
+        if (element.getModifiers().contains(Modifier.ABSTRACT)) {
+            categories.add(TypeCategory.ABSTRACT);
+        }
+        Set<String> supertypes = getSupertypes(erasureType);
+        if (supertypes.contains(Collection.class.getTypeName())) {
+            categories.add(TypeCategory.COLLECTION);
+        }
+        if (supertypes.contains(Set.class.getTypeName())) {
+            categories.add(TypeCategory.SET);
+        }
+        if (supertypes.contains(Queue.class.getTypeName())) {
+            categories.add(TypeCategory.QUEUE);
+        }
+        if (supertypes.contains(Map.class.getTypeName())) {
+            categories.add(TypeCategory.MAP);
+        }
+        for (String supertype : supertypes) {
+            TypeElement supertypeElement = elements.getTypeElement(supertype);
+            if (supertypeElement != null && supertypeElement.getAnnotation(Serializable.class) != null) {
+                categories.add(TypeCategory.SERIALIZABLE);
+                break;
             }
         }
-        return false;
+        return categories;
+    }
+
+    /**
+     * 获取所有父类型(包括本身)，按擦除后的类型缓存
+     * @param type 类型
+     * @return 擦除后的类型名
+     */
+    private Set<String> getSupertypes(TypeMirror type) {
+        TypeMirror erasureType = types.erasure(type);
+        Set<String> supertypes = supertypeMap.get(erasureType.toString());
+        if (supertypes != null) {
+            return supertypes;
+        }
+        // 广度遍历父类型，不递归
+        supertypes = new HashSet<>();
+        Deque<TypeMirror> queue = new ArrayDeque<>();
+        queue.add(erasureType);
+        while (!queue.isEmpty()) {
+            TypeMirror current = types.erasure(queue.poll());
+            if (supertypes.add(current.toString())) {
+                queue.addAll(types.directSupertypes(current));
+            }
+        }
+        supertypeMap.put(erasureType.toString(), supertypes);
+        return supertypes;
     }
 
     private TypeMirror findSerializableClass(TypeMirror type) {
@@ -788,18 +3984,7 @@ public class SerializerProcessor extends AbstractProcessor {
      * @return 是 true
      */
     private boolean isAssignableFrom(TypeMirror type, Class<?> clazz) {
-        // 先擦除泛型
-        TypeMirror erasureType = types.erasure(type);
-        if (erasureType.toString().equals(clazz.getTypeName())) {
-            return true;
-        }
-        // 递归查找父类
-        for (TypeMirror superType : types.directSupertypes(type)) {
-            if (isAssignableFrom(superType, clazz)) {
-                return true;
-            }
-        }
-        return false;
+        return getSupertypes(type).contains(clazz.getTypeName());
     }
 
     /**
@@ -808,7 +3993,7 @@ public class SerializerProcessor extends AbstractProcessor {
      * @return 是 true
      */
     private boolean isAbstract(TypeMirror type) {
-        return types.asElement(type).getModifiers().contains(Modifier.ABSTRACT);
+        return getTypeCategory(type).contains(TypeCategory.ABSTRACT);
     }
 
     /**
@@ -821,10 +4006,7 @@ public class SerializerProcessor extends AbstractProcessor {
         if (type.getKind().isPrimitive()) {
             return true;
         }
-        //擦除一下泛型
-        TypeMirror erasureType = types.erasure(type);
-        String typeName = Utils.getTypeName(erasureType.toString());
-        return Utils.WRAPPER_PRIMITIVE_MAP.containsKey(typeName);
+        return isWrapper(type);
     }
 
     /**
@@ -833,10 +4015,7 @@ public class SerializerProcessor extends AbstractProcessor {
      * @return 是 true
      */
     private boolean isWrapper(TypeMirror type) {
-        //擦除一下泛型
-        TypeMirror erasureType = types.erasure(type);
-        String typeName = Utils.getTypeName(erasureType.toString());
-        return Utils.WRAPPER_PRIMITIVE_MAP.containsKey(typeName);
+        return getTypeCategory(type).contains(TypeCategory.WRAPPER);
     }
 
     /**
@@ -868,7 +4047,7 @@ public class SerializerProcessor extends AbstractProcessor {
      * @return 是 true
      */
     private boolean isCollection(TypeMirror type) {
-        return isAssignableFrom(type, Collection.class);
+        return getTypeCategory(type).contains(TypeCategory.COLLECTION);
     }
 
     /**
@@ -877,7 +4056,7 @@ public class SerializerProcessor extends AbstractProcessor {
      * @return 是 true
      */
     private boolean isMap(TypeMirror type) {
-        return isAssignableFrom(type, Map.class);
+        return getTypeCategory(type).contains(TypeCategory.MAP);
     }
 
     /**
@@ -886,7 +4065,7 @@ public class SerializerProcessor extends AbstractProcessor {
      * @return 是 true
      */
     private boolean isSet(TypeMirror type) {
-        return isAssignableFrom(type, Set.class);
+        return getTypeCategory(type).contains(TypeCategory.SET);
     }
 
     /**
@@ -895,7 +4074,7 @@ public class SerializerProcessor extends AbstractProcessor {
      * @return 是 true
      */
     private boolean isQueue(TypeMirror type) {
-        return isAssignableFrom(type, Queue.class);
+        return getTypeCategory(type).contains(TypeCategory.QUEUE);
     }
 
     /**
@@ -931,6 +4110,20 @@ public class SerializerProcessor extends AbstractProcessor {
             return classMap.computeIfAbsent(jcClassDecl.getSimpleName().toString(), k -> new JavaClassWrapper(element, jcClassDecl));
         }
 
+        boolean isEmpty() {
+            return classMap.isEmpty();
+        }
+
+        /**
+         * 获取类包装
+         * @param element 类元素
+         * @return 类包装，不是本轮的类时返回null
+         */
+        JavaClassWrapper get(TypeElement element) {
+            JavaClassWrapper classWrapper = classMap.get(element.getSimpleName().toString());
+            return classWrapper != null && classWrapper.element.equals(element) ? classWrapper : null;
+        }
+
         /**
          * 遍历类
          * @param consumer Consumer<JavaClassWrapper>
@@ -952,12 +4145,16 @@ public class SerializerProcessor extends AbstractProcessor {
         TypeSpec.Builder classSpec;
         /** 类名 */
         String className;
+        /** 字段布局指纹 */
+        String fingerprint;
 
         JavaClassWrapper(TypeElement element, JCClassDecl classDecl) {
             this.element = element;
             this.classDecl = classDecl;
             this.className = getSimpleName() + "IOSerializer";
+            // 增量编译(isolating)要求每个生成的文件有且只有一个来源元素
             this.classSpec = TypeSpec.classBuilder(className)
+                    .addOriginatingElement(element)
                     .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
                     .addAnnotation(GeneratedFile.class);
         }
@@ -1071,14 +4268,52 @@ public class SerializerProcessor extends AbstractProcessor {
             return classDecl.getSimpleName().toString();
         }
 
+        /**
+         * 字段布局指纹，由父类、自定义序列化、字段(修饰符、类型、名字)、处理器选项和版本决定，
+         * 相同时生成的代码相同
+         * @return 指纹
+         */
+        String getFingerprint() {
+            if (fingerprint == null) {
+                StringBuilder layout = new StringBuilder(element.getQualifiedName());
+                layout.append(" extends ").append(element.getSuperclass());
+                layout.append(';').append(hasMethodDecl(SerializerBound.READ.accessName, SerializerBound.READ.stream));
+                layout.append(';').append(hasMethodDecl(SerializerBound.WRITE.accessName, SerializerBound.WRITE.stream));
+                forEach(variableWrapper -> {
+                    Element variable = variableWrapper.element;
+                    TypeMirror type = variable.asType();
+                    layout.append(';').append(variable.getModifiers()).append(' ').append(type).append(' ').append(variable.getSimpleName());
+                    // 字段类型是否可序列化决定了走生成的序列化类还是通用读写
+                    if (type.getKind() == TypeKind.DECLARED) {
+                        layout.append(isSerializable(type) ? "+" : "-").append(isAbstract(type) ? "+" : "-");
+                    }
+                });
+                for (SerializerOption option : SerializerOption.values()) {
+                    layout.append(';').append(option.key).append('=').append(options.get(option.key));
+                }
+                layout.append(';').append(SerializerProcessor.class.getPackage().getImplementationVersion());
+                fingerprint = Utils.fingerprint(layout.toString());
+            }
+            return fingerprint;
+        }
+
         /**
          * 构建javaFile
          * @return JavaFile
          */
         JavaFile build() {
+            return build(classSpec.build());
+        }
+
+        /**
+         * 构建同包下的javaFile
+         * @param typeSpec 类定义
+         * @return JavaFile
+         */
+        JavaFile build(TypeSpec typeSpec) {
             PackageElement packageEle = elements.getPackageOf(element);
-            return JavaFile.builder(packageEle.toString(), classSpec.build())
-                    .addFileComment("This file is generated by program. Do not edit it manually")
+            return JavaFile.builder(packageEle.toString(), typeSpec)
+                    .addFileComment("This file is generated by program. Do not edit it manually\n$L$L", FINGERPRINT, getFingerprint())
                     .indent("    ")
                     .build();
         }
@@ -1087,17 +4322,60 @@ public class SerializerProcessor extends AbstractProcessor {
          * 写入到文件中
          */
         void writeToFile(String outPath) {
+            writeToFile(build(), outPath);
+        }
+
+        /**
+         * 写入到文件中
+         * @param javaFile java文件
+         * @param outPath 输出目录，相对路径以工程目录为准
+         */
+        void writeToFile(JavaFile javaFile, String outPath) {
             try {
-                JavaFile javaFile = build();
-                FileObject resource = filer.getResource(StandardLocation.SOURCE_OUTPUT, javaFile.packageName, className);
-                String path = Utils.fixPath(resource.toUri().getPath());
-                path = path.substring(0, path.indexOf(TARGET_PATH)) + outPath;
+                String path = outPath;
+                if (!new File(outPath).isAbsolute()) {
+                    FileObject resource = filer.getResource(StandardLocation.SOURCE_OUTPUT, javaFile.packageName, className);
+                    String resourcePath = Utils.fixPath(resource.toUri().getPath());
+                    int index = resourcePath.indexOf(TARGET_PATH);
+                    if (index < 0) {
+                        printWarning(getSimpleName(), "无法确定工程目录，请使用绝对路径! Path: " + outPath);
+                        return;
+                    }
+                    path = resourcePath.substring(0, index) + outPath;
+                }
+                // 指纹没变的不重写，保持文件时间不变，避免触发重新编译
+                File file = new File(path, javaFile.packageName.replace('.', File.separatorChar) + File.separator + javaFile.typeSpec.name + ".java");
+                if (isUpToDate(file)) {
+                    return;
+                }
                 javaFile.writeTo(new File(path));
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
 
+        /**
+         * 已有的文件是否与当前指纹一致
+         * @param file 文件
+         * @return 一致 true
+         */
+        private boolean isUpToDate(File file) {
+            if (!file.isFile()) {
+                return false;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String fingerprintLine = "// " + FINGERPRINT + getFingerprint();
+                for (String line = reader.readLine(); line != null && line.startsWith("//"); line = reader.readLine()) {
+                    if (line.equals(fingerprintLine)) {
+                        return true;
+                    }
+                }
+            } catch (IOException e) {
+                // 读不了就重写
+            }
+            return false;
+        }
+
         /**
          * 写入到文件中
          */
@@ -1129,6 +4407,47 @@ public class SerializerProcessor extends AbstractProcessor {
         }
     }
 
+    /**
+     * 生成一个读写方法时的状态，生成过程中按字段、按方法种类修改
+     * 生成中途嵌套生成别的类的方法(ByteBuffer读写、sizeOf)时换一个新的，生成完再换回来
+     */
+    private static class GenerationContext {
+        /** 当前生成方法的空值位图，未开启时为null */
+        NullBitmap nullBitmap;
+        /** 当前读写的字段，空值位图只对字段本身生效，不对它的元素、键值等局部变量生效 */
+        Element nullBitmapField;
+        /** 当前字段是否使用变长整数编码 */
+        boolean varint;
+        /** 当前字段的Integer/Long集合是否用基础类型集合 */
+        boolean primitiveCollection;
+        /** 当前字段的字符串是否按字典编码 */
+        boolean stringDictionary;
+        /** 当前字段读出的字符串是否经过驻留缓存 */
+        boolean stringIntern;
+        /** 当前字段的嵌套对象直接调用序列化类时为所在类，否则为null */
+        TypeElement inlineElement;
+        /** 当前是否在生成sizeOf，复用write的生成逻辑，累加字节数而不是写流 */
+        boolean sizing;
+        /** 生成sizeOf、ByteBuffer读写时遇到的不支持的原因，支持时为null */
+        String unsupported;
+        /** 当前是否在生成ByteBuffer读写，流的读写换成缓冲区的put/get */
+        boolean buffer;
+        /** 当前生成ByteBuffer读写的类 */
+        TypeElement bufferElement;
+        /** 当前生成引用共享模式读写的类，不是引用共享模式时为null */
+        TypeElement referenceElement;
+        /** 当前是否在生成readInto，复用对象原有的集合、Map、数组和嵌套对象 */
+        boolean reusing;
+        /** readInto中持有字段原值的局部变量，只有它可以复用 */
+        String reuseVariable;
+        /** 当前生成流式读的字段，不是流式读时为null */
+        VariableWrapper streamingField;
+        /** 当前是否在生成并行读写，开启parallel的集合字段分块并行编解码 */
+        boolean parallel;
+        /** 并行读写中生成的分块编解码方法，整个方法生成成功后才加到类中 */
+        java.util.List<MethodSpec.Builder> chunkSpecs;
+    }
+
     /** 变量字段包装 */
     private static class VariableWrapper {
         /** 字段元素 */
@@ -1142,6 +4461,101 @@ public class SerializerProcessor extends AbstractProcessor {
         }
     }
 
+    /** 空值位图，每个可空字段占一位，按64位分组，最后一组按实际位数选byte/short/int/long */
+    private static class NullBitmap {
+        /** 每组位数 */
+        static final int WORD_BITS = Long.SIZE;
+        /** 位图局部变量名 */
+        static final String NAME = "nullBits";
+        /** 字段 -> 位索引 */
+        private Map<Element, Integer> bitMap = new LinkedHashMap<>();
+
+        /**
+         * 写时字段取到的局部变量名，以下划线结尾，字段的元素、键值等局部变量是在它后面加后缀，不会与其他字段的重名
+         * @param field 字段
+         * @return 变量名
+         */
+        static String localName(Element field) {
+            return field.getSimpleName() + "_";
+        }
+
+        /**
+         * 分配一位
+         * @param field 字段
+         */
+        void add(Element field) {
+            bitMap.putIfAbsent(field, bitMap.size());
+        }
+
+        boolean contains(Element field) {
+            return bitMap.containsKey(field);
+        }
+
+        boolean isEmpty() {
+            return bitMap.isEmpty();
+        }
+
+        int bitOf(Element field) {
+            return bitMap.get(field);
+        }
+
+        void forEach(BiConsumer<Element, Integer> consumer) {
+            bitMap.forEach(consumer);
+        }
+
+        /**
+         * 分组数
+         * @return 分组数
+         */
+        int wordCount() {
+            return (bitMap.size() + WORD_BITS - 1) / WORD_BITS;
+        }
+
+        /**
+         * 分组的局部变量名
+         * @param word 分组
+         * @return 变量名
+         */
+        String wordName(int word) {
+            return NAME + word;
+        }
+
+        /**
+         * 分组在流中的类型
+         * @param word 分组
+         * @return byte/short/int/long
+         */
+        Class<?> wordClass(int word) {
+            int bits = Math.min(WORD_BITS, bitMap.size() - word * WORD_BITS);
+            if (bits <= Byte.SIZE) {
+                return byte.class;
+            }
+            if (bits <= Short.SIZE) {
+                return short.class;
+            }
+            return bits <= Integer.SIZE ? int.class : long.class;
+        }
+
+        /**
+         * 分组的局部变量类型
+         * @param word 分组
+         * @return int/long
+         */
+        Class<?> wordLocalClass(int word) {
+            return wordClass(word) == long.class ? long.class : int.class;
+        }
+
+        /**
+         * 某一位的掩码表达式
+         * @param bit 位索引
+         * @return 掩码
+         */
+        String mask(int bit) {
+            String one = wordLocalClass(bit / WORD_BITS) == long.class ? "1L" : "1";
+            return one + " << " + bit % WORD_BITS;
+        }
+    }
+
     /**
      * 用于闭包的result
      */
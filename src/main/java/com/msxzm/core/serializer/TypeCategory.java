@@ -0,0 +1,28 @@
+package com.msxzm.core.serializer;
+
+/**
+ * 类型分类，一个类型可以同时属于多个分类(如Set也是集合)
+ * @author zenghongming
+ * @date 2026/10/17 17:10
+ */
+enum TypeCategory {
+    /** 基础类型 */
+    PRIMITIVE,
+    /** 包装类型 */
+    WRAPPER,
+    /** 数组 */
+    ARRAY,
+    /** 集合 */
+    COLLECTION,
+    /** Set */
+    SET,
+    /** Queue */
+    QUEUE,
+    /** Map */
+    MAP,
+    /** 可序列化(自身或父类有Serializable注解) */
+    SERIALIZABLE,
+    /** 抽象类或接口 */
+    ABSTRACT,
+    ;
+}
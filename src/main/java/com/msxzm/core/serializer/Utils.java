@@ -1,5 +1,11 @@
 package com.msxzm.core.serializer;
 
+import com.msxzm.core.serializer.runtime.IntArrayList;
+import com.msxzm.core.serializer.runtime.IntIntHashMap;
+import com.msxzm.core.serializer.runtime.IntLongHashMap;
+import com.msxzm.core.serializer.runtime.LongArrayList;
+import com.msxzm.core.serializer.runtime.LongIntHashMap;
+import com.msxzm.core.serializer.runtime.LongLongHashMap;
 import com.sun.tools.javac.code.Type.ArrayType;
 import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
 import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
@@ -7,7 +13,11 @@ import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -20,6 +30,10 @@ class Utils {
     static final Map<String, Class> PRIMITIVE_MAP;
     /** 包装类型 -> 基础类型 */
     static final Map<String, Class> WRAPPER_PRIMITIVE_MAP;
+    /** 基础类型 -> 定长写入的字节数 */
+    static final Map<Class<?>, Integer> PRIMITIVE_SIZE_MAP;
+    /** 基础类型集合 -> 元素基础类型(Map为键、值的基础类型) */
+    static final Map<Class<?>, Class<?>[]> PRIMITIVE_COLLECTION_MAP;
 
     /** 数组在类名中的标识 */
     static final String CLASS_ARRAY_REGEX = "\\[]";
@@ -49,6 +63,27 @@ class Utils {
         WRAPPER_PRIMITIVE_MAP.put("String", String.class);
     }
 
+    static {
+        PRIMITIVE_SIZE_MAP = new HashMap<>();
+        PRIMITIVE_SIZE_MAP.put(boolean.class, 1);
+        PRIMITIVE_SIZE_MAP.put(byte.class, Byte.BYTES);
+        PRIMITIVE_SIZE_MAP.put(short.class, Short.BYTES);
+        PRIMITIVE_SIZE_MAP.put(int.class, Integer.BYTES);
+        PRIMITIVE_SIZE_MAP.put(float.class, Float.BYTES);
+        PRIMITIVE_SIZE_MAP.put(long.class, Long.BYTES);
+        PRIMITIVE_SIZE_MAP.put(double.class, Double.BYTES);
+    }
+
+    static {
+        PRIMITIVE_COLLECTION_MAP = new LinkedHashMap<>();
+        PRIMITIVE_COLLECTION_MAP.put(IntArrayList.class, new Class<?>[] {int.class});
+        PRIMITIVE_COLLECTION_MAP.put(LongArrayList.class, new Class<?>[] {long.class});
+        PRIMITIVE_COLLECTION_MAP.put(IntIntHashMap.class, new Class<?>[] {int.class, int.class});
+        PRIMITIVE_COLLECTION_MAP.put(IntLongHashMap.class, new Class<?>[] {int.class, long.class});
+        PRIMITIVE_COLLECTION_MAP.put(LongIntHashMap.class, new Class<?>[] {long.class, int.class});
+        PRIMITIVE_COLLECTION_MAP.put(LongLongHashMap.class, new Class<?>[] {long.class, long.class});
+    }
+
     /**
      * 判断两个方法是否一致
      * @param methodDecl1 方法1定义
@@ -118,4 +153,35 @@ class Utils {
     static String fixPath(String path) {
         return path.replace('\\', File.separatorChar).replace('/', File.separatorChar);
     }
+
+    /**
+     * 计算指纹(SHA-1的前16位十六进制)
+     * @param content 内容
+     * @return 指纹
+     */
+    static String fingerprint(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 8; ++i) {
+                builder.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(content.hashCode());
+        }
+    }
+
+    /**
+     * 字段标签，由字段名决定(String.hashCode的算法是固定的)，0留给父类
+     * 18位的标签加上3位值类型，键写成变长int不超过3字节
+     * @param name 字段名
+     * @return 18位的标签
+     */
+    static int fieldTag(String name) {
+        int hash = name.hashCode();
+        int tag = (hash ^ hash >>> 18) & 0x3FFFF;
+        return tag == 0 ? 1 : tag;
+    }
 }
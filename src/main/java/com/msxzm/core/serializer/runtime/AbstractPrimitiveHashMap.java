@@ -0,0 +1,350 @@
+package com.msxzm.core.serializer.runtime;
+
+import java.util.*;
+
+/**
+ * 开放寻址(线性探测)的基础类型HashMap，键值统一用long存储，不装箱，不支持null
+ * 子类负责键值类型的转换，并提供不装箱的读写方法
+ * 遍历: for (int slot = map.firstSlot(); slot >= 0; slot = map.nextSlot(slot))
+ * @author zenghongming
+ * @date 2026/10/17 14:30
+ */
+public abstract class AbstractPrimitiveHashMap<K, V> extends AbstractMap<K, V> {
+    /** 负载因子 */
+    private static final float LOAD_FACTOR = 0.75f;
+    /** 最小容量 */
+    private static final int MIN_CAPACITY = 4;
+    /** 槽状态 空 */
+    private static final byte EMPTY = 0;
+    /** 槽状态 有值 */
+    private static final byte FULL = 1;
+    /** 槽状态 已删除 */
+    private static final byte REMOVED = 2;
+
+    /** 键 */
+    private long[] keys;
+    /** 值 */
+    private long[] values;
+    /** 槽状态 */
+    private byte[] states;
+    /** 元素个数 */
+    private int size;
+    /** 已删除的槽数 */
+    private int removed;
+    /** 扩容阈值 */
+    private int threshold;
+    /** 修改次数，用于遍历时检查并发修改 */
+    private int modCount;
+    /** entrySet缓存 */
+    private Set<Entry<K, V>> entrySet;
+
+    protected AbstractPrimitiveHashMap(int expectedSize) {
+        allocate(tableSizeFor((int) (Math.max(expectedSize, 0) / LOAD_FACTOR) + 1));
+    }
+
+    /** 键对象转成long，类型不对时抛ClassCastException */
+    protected abstract long unboxKey(Object key);
+
+    /** long转成键对象 */
+    protected abstract K boxKey(long key);
+
+    /** 值对象转成long */
+    protected abstract long unboxValue(Object value);
+
+    /** long转成值对象 */
+    protected abstract V boxValue(long value);
+
+    /** 是否是键的类型 */
+    protected abstract boolean isKeyType(Object key);
+
+    /**
+     * 第一个有值的槽
+     * @return 槽索引，没有返回-1
+     */
+    public final int firstSlot() {
+        return nextSlot(-1);
+    }
+
+    /**
+     * 下一个有值的槽
+     * @param slot 当前槽
+     * @return 槽索引，没有返回-1
+     */
+    public final int nextSlot(int slot) {
+        for (int i = slot + 1; i < states.length; ++i) {
+            if (states[i] == FULL) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    protected final long rawKeyAt(int slot) {
+        return keys[slot];
+    }
+
+    protected final long rawValueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * 查找键所在的槽
+     * @param key 键
+     * @return 槽索引，没有返回-1
+     */
+    protected final int indexOf(long key) {
+        int mask = states.length - 1;
+        for (int i = hash(key) & mask; states[i] != EMPTY; i = (i + 1) & mask) {
+            if (states[i] == FULL && keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 放入键值
+     * @param key 键
+     * @param value 值
+     * @return 原来的槽索引，新增时返回-1
+     */
+    protected final int rawPut(long key, long value) {
+        int slot = indexOf(key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return slot;
+        }
+        int mask = states.length - 1;
+        int i = hash(key) & mask;
+        // 找第一个空槽或已删除的槽
+        while (states[i] == FULL) {
+            i = (i + 1) & mask;
+        }
+        if (states[i] == REMOVED) {
+            --removed;
+        }
+        keys[i] = key;
+        values[i] = value;
+        states[i] = FULL;
+        ++size;
+        ++modCount;
+        if (size + removed > threshold) {
+            rehash(size > threshold ? states.length << 1 : states.length);
+        }
+        return -1;
+    }
+
+    /**
+     * 删除槽
+     * @param slot 槽索引
+     */
+    protected final void removeSlot(int slot) {
+        states[slot] = REMOVED;
+        --size;
+        ++removed;
+        ++modCount;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return isKeyType(key) && indexOf(unboxKey(key)) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!isKeyType(key)) {
+            return null;
+        }
+        int slot = indexOf(unboxKey(key));
+        return slot < 0 ? null : boxValue(values[slot]);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        long k = unboxKey(key);
+        long v = unboxValue(value);
+        int slot = indexOf(k);
+        if (slot >= 0) {
+            V old = boxValue(values[slot]);
+            values[slot] = v;
+            return old;
+        }
+        rawPut(k, v);
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!isKeyType(key)) {
+            return null;
+        }
+        int slot = indexOf(unboxKey(key));
+        if (slot < 0) {
+            return null;
+        }
+        V old = boxValue(values[slot]);
+        removeSlot(slot);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(states, EMPTY);
+        size = 0;
+        removed = 0;
+        ++modCount;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    AbstractPrimitiveHashMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        states = new byte[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        byte[] oldStates = states;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int slot = 0; slot < oldStates.length; ++slot) {
+            if (oldStates[slot] != FULL) {
+                continue;
+            }
+            int i = hash(oldKeys[slot]) & mask;
+            while (states[i] == FULL) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[slot];
+            values[i] = oldValues[slot];
+            states[i] = FULL;
+        }
+        removed = 0;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Math.max(capacity, MIN_CAPACITY) - 1;
+        return Integer.highestOneBit(n) << 1;
+    }
+
+    /** 遍历 */
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        /** 下一个槽 */
+        private int next = firstSlot();
+        /** 当前槽 */
+        private int current = -1;
+        /** 期望的修改次数 */
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            current = next;
+            next = nextSlot(next);
+            return new SlotEntry(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeSlot(current);
+            current = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /** 槽对应的Entry */
+    private class SlotEntry implements Entry<K, V> {
+        /** 槽索引 */
+        private final int slot;
+
+        SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public K getKey() {
+            return boxKey(keys[slot]);
+        }
+
+        @Override
+        public V getValue() {
+            return boxValue(values[slot]);
+        }
+
+        @Override
+        public V setValue(V value) {
+            V old = boxValue(values[slot]);
+            values[slot] = unboxValue(value);
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return getKey().equals(e.getKey()) && getValue().equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.msxzm.core.serializer.runtime;
+
+import java.util.function.Supplier;
+
+/**
+ * 数组实现的对象池，非线程安全，每个线程(或每个连接)单独一个
+ * 池满时归还的对象直接丢弃
+ * @param <T> 对象类型
+ * @author zenghongming
+ * @date 2026/10/17 21:40
+ */
+public class ArrayObjectPool<T> implements ObjectPool<T> {
+    /** 新建对象 */
+    private final Supplier<T> factory;
+    /** 空闲的对象 */
+    private final Object[] objects;
+    /** 空闲的对象个数 */
+    private int size;
+
+    public ArrayObjectPool(Supplier<T> factory, int capacity) {
+        this.factory = factory;
+        this.objects = new Object[capacity];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if (size == 0) {
+            return factory.get();
+        }
+        T instance = (T) objects[--size];
+        objects[size] = null;
+        return instance;
+    }
+
+    @Override
+    public void release(T instance) {
+        if (instance != null && size < objects.length) {
+            objects[size++] = instance;
+        }
+    }
+}
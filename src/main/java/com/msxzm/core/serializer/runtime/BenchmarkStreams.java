@@ -0,0 +1,31 @@
+package com.msxzm.core.serializer.runtime;
+
+import com.msxzm.base.stream.InputStream;
+import com.msxzm.base.stream.OutputStream;
+
+/**
+ * 生成的JMH基准测试用来创建、复用流，由使用方实现并通过 -Aserializer.benchmarkStreams 指定
+ * 实现类需要有public无参构造方法
+ * @author zenghongming
+ * @date 2026/10/17 15:30
+ */
+public interface BenchmarkStreams {
+    /**
+     * 新建一个输出流
+     * @return 输出流
+     */
+    OutputStream newOutputStream();
+
+    /**
+     * 清空输出流以便复用
+     * @param outputStream 输出流
+     */
+    void reset(OutputStream outputStream);
+
+    /**
+     * 用输出流中已写入的数据新建一个输入流
+     * @param outputStream 输出流
+     * @return 输入流
+     */
+    InputStream newInputStream(OutputStream outputStream);
+}
@@ -0,0 +1,330 @@
+package com.msxzm.core.serializer.runtime;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 生成的ByteBuffer读写方法用到的字符串、基础类型数组读写
+ * 基础类型按缓冲区的字节序读写，字符串为 变长int字节数 + UTF-8字节
+ * 堆内、堆外(direct)、MappedByteBuffer都直接读写，不经过中间byte[]
+ * @author zenghongming
+ * @date 2026/10/17 19:00
+ */
+public final class ByteBuffers {
+    private ByteBuffers() {
+    }
+
+    /**
+     * 写一个字符串
+     * @param buffer 缓冲区
+     * @param value 字符串，不为null
+     */
+    public static void putString(ByteBuffer buffer, String value) {
+        VarInts.writeVarInt(buffer, utf8Length(value));
+        putUtf8(buffer, value);
+    }
+
+    /**
+     * 写一个可以为null的字符串，长度前缀为 UTF-8字节数 + 1，0表示null，带标签的格式中字符串字段的值
+     * @param buffer 缓冲区
+     * @param value 字符串
+     */
+    public static void putNullableString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        VarInts.writeVarInt(buffer, utf8Length(value) + 1);
+        putUtf8(buffer, value);
+    }
+
+    /**
+     * 写字符串的UTF-8编码，不带长度前缀
+     * @param buffer 缓冲区
+     * @param value 字符串
+     */
+    private static void putUtf8(ByteBuffer buffer, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符，与String.getBytes一致替换成'?'
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * 读一个字符串
+     * @param buffer 缓冲区
+     * @return 字符串
+     */
+    public static String getString(ByteBuffer buffer) {
+        return getUtf8(buffer, VarInts.readVarInt(buffer));
+    }
+
+    /**
+     * 读一个可以为null的字符串，与 putNullableString 对应
+     * @param buffer 缓冲区
+     * @return 字符串
+     */
+    public static String getNullableString(ByteBuffer buffer) {
+        int length = VarInts.readVarInt(buffer);
+        return length == 0 ? null : getUtf8(buffer, length - 1);
+    }
+
+    /**
+     * 读若干字节的UTF-8编码
+     * @param buffer 缓冲区
+     * @param length 字节数
+     * @return 字符串
+     */
+    private static String getUtf8(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("bad string length: " + length + ", remaining: " + buffer.remaining());
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    /**
+     * 跳过一个字符串，不解码
+     * @param buffer 缓冲区
+     */
+    public static void skipString(ByteBuffer buffer) {
+        int length = VarInts.readVarInt(buffer);
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * 空出若干字节，之后回填，空间不够时与put一样抛 BufferOverflowException
+     * @param buffer 缓冲区
+     * @param length 字节数
+     * @return 空出的字节之后的位置
+     */
+    public static int reserve(ByteBuffer buffer, int length) {
+        if (buffer.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        int position = buffer.position() + length;
+        buffer.position(position);
+        return position;
+    }
+
+    /**
+     * UTF-8编码的字节数
+     * @param value 字符串
+     * @return 字节数
+     */
+    private static int utf8Length(String value) {
+        int length = value.length();
+        int size = length;
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            if (c >= 0x800) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // 代理对共4字节
+                    size += 2;
+                    ++i;
+                } else if (!Character.isSurrogate(c)) {
+                    size += 2;
+                }
+            } else if (c >= 0x80) {
+                size += 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 写一段boolean数组，每个占1字节，true为1，空间不够时抛 BufferOverflowException
+     * @param buffer 缓冲区
+     * @param array 数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void putBooleans(ByteBuffer buffer, boolean[] array, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) {
+            buffer.put((byte) (array[i] ? 1 : 0));
+        }
+    }
+
+    /**
+     * 读一段boolean数组，非0为true，数据不够时抛 BufferUnderflowException
+     * @param buffer 缓冲区
+     * @param array 读出的值写入的数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void getBooleans(ByteBuffer buffer, boolean[] array, int offset, int length) {
+        for (int i = offset; i < offset + length; ++i) {
+            array[i] = buffer.get() != 0;
+        }
+    }
+
+    /**
+     * 写一段byte数组，空间不够时抛 BufferOverflowException
+     * @param buffer 缓冲区
+     * @param array 数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void putBytes(ByteBuffer buffer, byte[] array, int offset, int length) {
+        buffer.put(array, offset, length);
+    }
+
+    /**
+     * 读一段byte数组，数据不够时抛 BufferUnderflowException
+     * @param buffer 缓冲区
+     * @param array 读出的值写入的数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void getBytes(ByteBuffer buffer, byte[] array, int offset, int length) {
+        buffer.get(array, offset, length);
+    }
+
+    /**
+     * 写一段short数组，按缓冲区的字节序，空间不够时抛 BufferOverflowException
+     * @param buffer 缓冲区
+     * @param array 数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void putShorts(ByteBuffer buffer, short[] array, int offset, int length) {
+        buffer.asShortBuffer().put(array, offset, length);
+        buffer.position(buffer.position() + length * Short.BYTES);
+    }
+
+    /**
+     * 读一段short数组，按缓冲区的字节序，数据不够时抛 BufferUnderflowException
+     * @param buffer 缓冲区
+     * @param array 读出的值写入的数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void getShorts(ByteBuffer buffer, short[] array, int offset, int length) {
+        buffer.asShortBuffer().get(array, offset, length);
+        buffer.position(buffer.position() + length * Short.BYTES);
+    }
+
+    /**
+     * 写一段int数组，按缓冲区的字节序，定长4字节，空间不够时抛 BufferOverflowException
+     * @param buffer 缓冲区
+     * @param array 数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void putInts(ByteBuffer buffer, int[] array, int offset, int length) {
+        buffer.asIntBuffer().put(array, offset, length);
+        buffer.position(buffer.position() + length * Integer.BYTES);
+    }
+
+    /**
+     * 读一段int数组，按缓冲区的字节序，定长4字节，数据不够时抛 BufferUnderflowException
+     * @param buffer 缓冲区
+     * @param array 读出的值写入的数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void getInts(ByteBuffer buffer, int[] array, int offset, int length) {
+        buffer.asIntBuffer().get(array, offset, length);
+        buffer.position(buffer.position() + length * Integer.BYTES);
+    }
+
+    /**
+     * 写一段float数组，按缓冲区的字节序，空间不够时抛 BufferOverflowException
+     * @param buffer 缓冲区
+     * @param array 数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void putFloats(ByteBuffer buffer, float[] array, int offset, int length) {
+        buffer.asFloatBuffer().put(array, offset, length);
+        buffer.position(buffer.position() + length * Float.BYTES);
+    }
+
+    /**
+     * 读一段float数组，按缓冲区的字节序，数据不够时抛 BufferUnderflowException
+     * @param buffer 缓冲区
+     * @param array 读出的值写入的数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void getFloats(ByteBuffer buffer, float[] array, int offset, int length) {
+        buffer.asFloatBuffer().get(array, offset, length);
+        buffer.position(buffer.position() + length * Float.BYTES);
+    }
+
+    /**
+     * 写一段long数组，按缓冲区的字节序，定长8字节，空间不够时抛 BufferOverflowException
+     * @param buffer 缓冲区
+     * @param array 数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void putLongs(ByteBuffer buffer, long[] array, int offset, int length) {
+        buffer.asLongBuffer().put(array, offset, length);
+        buffer.position(buffer.position() + length * Long.BYTES);
+    }
+
+    /**
+     * 读一段long数组，按缓冲区的字节序，定长8字节，数据不够时抛 BufferUnderflowException
+     * @param buffer 缓冲区
+     * @param array 读出的值写入的数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void getLongs(ByteBuffer buffer, long[] array, int offset, int length) {
+        buffer.asLongBuffer().get(array, offset, length);
+        buffer.position(buffer.position() + length * Long.BYTES);
+    }
+
+    /**
+     * 写一段double数组，按缓冲区的字节序，空间不够时抛 BufferOverflowException
+     * @param buffer 缓冲区
+     * @param array 数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void putDoubles(ByteBuffer buffer, double[] array, int offset, int length) {
+        buffer.asDoubleBuffer().put(array, offset, length);
+        buffer.position(buffer.position() + length * Double.BYTES);
+    }
+
+    /**
+     * 读一段double数组，按缓冲区的字节序，数据不够时抛 BufferUnderflowException
+     * @param buffer 缓冲区
+     * @param array 读出的值写入的数组
+     * @param offset 数组起始下标
+     * @param length 元素个数
+     */
+    public static void getDoubles(ByteBuffer buffer, double[] array, int offset, int length) {
+        buffer.asDoubleBuffer().get(array, offset, length);
+        buffer.position(buffer.position() + length * Double.BYTES);
+    }
+}
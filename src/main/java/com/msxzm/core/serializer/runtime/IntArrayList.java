@@ -0,0 +1,138 @@
+package com.msxzm.core.serializer.runtime;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * int数组实现的List，元素不装箱，不支持null
+ * @author zenghongming
+ * @date 2026/10/17 14:10
+ */
+public class IntArrayList extends AbstractList<Integer> implements RandomAccess {
+    /** 空数组 */
+    private static final int[] EMPTY = {};
+
+    /** 元素数组，有效部分为[0, size) */
+    private int[] elements;
+    /** 元素个数 */
+    private int size;
+
+    public IntArrayList() {
+        this.elements = EMPTY;
+    }
+
+    public IntArrayList(int capacity) {
+        this.elements = capacity > 0 ? new int[capacity] : EMPTY;
+    }
+
+    /**
+     * 直接包装一个数组(不拷贝)
+     * @param elements 元素数组
+     * @param size 元素个数
+     */
+    public IntArrayList(int[] elements, int size) {
+        if (size < 0 || size > elements.length) {
+            throw new IllegalArgumentException("size: " + size + ", length: " + elements.length);
+        }
+        this.elements = elements;
+        this.size = size;
+    }
+
+    public int getInt(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public int setInt(int index, int value) {
+        checkIndex(index);
+        int old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    public void addInt(int value) {
+        ensureCapacity(size + 1);
+        elements[size++] = value;
+        ++modCount;
+    }
+
+    public void addInt(int index, int value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        ++size;
+        ++modCount;
+    }
+
+    public int removeIntAt(int index) {
+        checkIndex(index);
+        int old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        --size;
+        ++modCount;
+        return old;
+    }
+
+    /**
+     * 底层数组，有效部分为[0, size())，用于整块读写
+     * @return 底层数组
+     */
+    public int[] elements() {
+        return elements;
+    }
+
+    public int[] toIntArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * 确保容量
+     * @param capacity 最小容量
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(capacity, elements.length + (elements.length >> 1)));
+        }
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer element) {
+        return setInt(index, element);
+    }
+
+    @Override
+    public void add(int index, Integer element) {
+        addInt(index, element);
+    }
+
+    @Override
+    public Integer remove(int index) {
+        return removeIntAt(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        ++modCount;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.msxzm.core.serializer.runtime;
+
+/**
+ * int为键、int为值的开放寻址HashMap，键值不装箱
+ * @author zenghongming
+ * @date 2026/10/17 14:40
+ */
+public class IntIntHashMap extends AbstractPrimitiveHashMap<Integer, Integer> {
+    public IntIntHashMap() {
+        super(0);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    public void put(int key, int value) {
+        rawPut(key, value);
+    }
+
+    public int getOrDefault(int key, int defaultValue) {
+        int slot = indexOf(key);
+        return slot < 0 ? defaultValue : (int) rawValueAt(slot);
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    public int keyAt(int slot) {
+        return (int) rawKeyAt(slot);
+    }
+
+    public int valueAt(int slot) {
+        return (int) rawValueAt(slot);
+    }
+
+    @Override
+    protected long unboxKey(Object key) {
+        return (Integer) key;
+    }
+
+    @Override
+    protected Integer boxKey(long key) {
+        return (int) key;
+    }
+
+    @Override
+    protected long unboxValue(Object value) {
+        return (Integer) value;
+    }
+
+    @Override
+    protected Integer boxValue(long value) {
+        return (int) value;
+    }
+
+    @Override
+    protected boolean isKeyType(Object key) {
+        return key instanceof Integer;
+    }
+}
@@ -0,0 +1,62 @@
+package com.msxzm.core.serializer.runtime;
+
+/**
+ * int为键、long为值的开放寻址HashMap，键值不装箱
+ * @author zenghongming
+ * @date 2026/10/17 14:45
+ */
+public class IntLongHashMap extends AbstractPrimitiveHashMap<Integer, Long> {
+    public IntLongHashMap() {
+        super(0);
+    }
+
+    public IntLongHashMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    public void put(int key, long value) {
+        rawPut(key, value);
+    }
+
+    public long getOrDefault(int key, long defaultValue) {
+        int slot = indexOf(key);
+        return slot < 0 ? defaultValue : rawValueAt(slot);
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    public int keyAt(int slot) {
+        return (int) rawKeyAt(slot);
+    }
+
+    public long valueAt(int slot) {
+        return rawValueAt(slot);
+    }
+
+    @Override
+    protected long unboxKey(Object key) {
+        return (Integer) key;
+    }
+
+    @Override
+    protected Integer boxKey(long key) {
+        return (int) key;
+    }
+
+    @Override
+    protected long unboxValue(Object value) {
+        return (Long) value;
+    }
+
+    @Override
+    protected Long boxValue(long value) {
+        return value;
+    }
+
+    @Override
+    protected boolean isKeyType(Object key) {
+        return key instanceof Integer;
+    }
+}
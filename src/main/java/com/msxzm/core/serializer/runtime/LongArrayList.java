@@ -0,0 +1,138 @@
+package com.msxzm.core.serializer.runtime;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * long数组实现的List，元素不装箱，不支持null
+ * @author zenghongming
+ * @date 2026/10/17 14:20
+ */
+public class LongArrayList extends AbstractList<Long> implements RandomAccess {
+    /** 空数组 */
+    private static final long[] EMPTY = {};
+
+    /** 元素数组，有效部分为[0, size) */
+    private long[] elements;
+    /** 元素个数 */
+    private int size;
+
+    public LongArrayList() {
+        this.elements = EMPTY;
+    }
+
+    public LongArrayList(int capacity) {
+        this.elements = capacity > 0 ? new long[capacity] : EMPTY;
+    }
+
+    /**
+     * 直接包装一个数组(不拷贝)
+     * @param elements 元素数组
+     * @param size 元素个数
+     */
+    public LongArrayList(long[] elements, int size) {
+        if (size < 0 || size > elements.length) {
+            throw new IllegalArgumentException("size: " + size + ", length: " + elements.length);
+        }
+        this.elements = elements;
+        this.size = size;
+    }
+
+    public long getLong(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public long setLong(int index, long value) {
+        checkIndex(index);
+        long old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    public void addLong(long value) {
+        ensureCapacity(size + 1);
+        elements[size++] = value;
+        ++modCount;
+    }
+
+    public void addLong(int index, long value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        ++size;
+        ++modCount;
+    }
+
+    public long removeLongAt(int index) {
+        checkIndex(index);
+        long old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        --size;
+        ++modCount;
+        return old;
+    }
+
+    /**
+     * 底层数组，有效部分为[0, size())，用于整块读写
+     * @return 底层数组
+     */
+    public long[] elements() {
+        return elements;
+    }
+
+    public long[] toLongArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * 确保容量
+     * @param capacity 最小容量
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(capacity, elements.length + (elements.length >> 1)));
+        }
+    }
+
+    @Override
+    public Long get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    public Long set(int index, Long element) {
+        return setLong(index, element);
+    }
+
+    @Override
+    public void add(int index, Long element) {
+        addLong(index, element);
+    }
+
+    @Override
+    public Long remove(int index) {
+        return removeLongAt(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        ++modCount;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+}
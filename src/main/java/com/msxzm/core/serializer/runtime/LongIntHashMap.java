@@ -0,0 +1,62 @@
+package com.msxzm.core.serializer.runtime;
+
+/**
+ * long为键、int为值的开放寻址HashMap，键值不装箱
+ * @author zenghongming
+ * @date 2026/10/17 14:50
+ */
+public class LongIntHashMap extends AbstractPrimitiveHashMap<Long, Integer> {
+    public LongIntHashMap() {
+        super(0);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    public void put(long key, int value) {
+        rawPut(key, value);
+    }
+
+    public int getOrDefault(long key, int defaultValue) {
+        int slot = indexOf(key);
+        return slot < 0 ? defaultValue : (int) rawValueAt(slot);
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    public long keyAt(int slot) {
+        return rawKeyAt(slot);
+    }
+
+    public int valueAt(int slot) {
+        return (int) rawValueAt(slot);
+    }
+
+    @Override
+    protected long unboxKey(Object key) {
+        return (Long) key;
+    }
+
+    @Override
+    protected Long boxKey(long key) {
+        return key;
+    }
+
+    @Override
+    protected long unboxValue(Object value) {
+        return (Integer) value;
+    }
+
+    @Override
+    protected Integer boxValue(long value) {
+        return (int) value;
+    }
+
+    @Override
+    protected boolean isKeyType(Object key) {
+        return key instanceof Long;
+    }
+}
@@ -0,0 +1,62 @@
+package com.msxzm.core.serializer.runtime;
+
+/**
+ * long为键、long为值的开放寻址HashMap，键值不装箱
+ * @author zenghongming
+ * @date 2026/10/17 14:55
+ */
+public class LongLongHashMap extends AbstractPrimitiveHashMap<Long, Long> {
+    public LongLongHashMap() {
+        super(0);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    public void put(long key, long value) {
+        rawPut(key, value);
+    }
+
+    public long getOrDefault(long key, long defaultValue) {
+        int slot = indexOf(key);
+        return slot < 0 ? defaultValue : rawValueAt(slot);
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    public long keyAt(int slot) {
+        return rawKeyAt(slot);
+    }
+
+    public long valueAt(int slot) {
+        return rawValueAt(slot);
+    }
+
+    @Override
+    protected long unboxKey(Object key) {
+        return (Long) key;
+    }
+
+    @Override
+    protected Long boxKey(long key) {
+        return key;
+    }
+
+    @Override
+    protected long unboxValue(Object value) {
+        return (Long) value;
+    }
+
+    @Override
+    protected Long boxValue(long value) {
+        return value;
+    }
+
+    @Override
+    protected boolean isKeyType(Object key) {
+        return key instanceof Long;
+    }
+}
@@ -0,0 +1,236 @@
+package com.msxzm.core.serializer.runtime;
+
+import java.util.Arrays;
+
+/**
+ * 生成的读写中开启 -Aserializer.compress 的byte[]字段的块压缩，纯Java实现的LZ4块格式
+ * 压缩后的格式为 4字节大端原始长度 + LZ4块(若干序列: token + 字面量长度扩展 + 字面量 + 2字节小端偏移 + 匹配长度扩展)，
+ * 贪心哈希匹配，不可压缩的数据按步长加速跳过；小于阈值或压缩后不更小的不压缩，调用方原样写
+ * @author zenghongming
+ * @date 2026/10/17 23:10
+ */
+public final class Lz4Block {
+    /** 默认的压缩阈值(字节)，小于它的不压缩 */
+    public static final int DEFAULT_THRESHOLD = 4096;
+    /** 原始长度头的字节数 */
+    private static final int HEADER = Integer.BYTES;
+    /** 最短匹配 */
+    private static final int MIN_MATCH = 4;
+    /** 最后这么多字节总是字面量 */
+    private static final int LAST_LITERALS = 5;
+    /** 最后一个匹配的开始位置距末尾不少于这么多字节 */
+    private static final int MF_LIMIT = 12;
+    /** 最大匹配偏移 */
+    private static final int MAX_OFFSET = 0xFFFF;
+    /** token中长度的最大值，超过的后面跟扩展字节 */
+    private static final int RUN_MASK = 0xF;
+    /** 最大压缩比，用于检查原始长度头 */
+    private static final int MAX_RATIO = 255;
+    /** 哈希表大小的上下限(2的幂次) */
+    private static final int MIN_HASH_LOG = 8;
+    private static final int MAX_HASH_LOG = 14;
+    /** 连续没有匹配时跳过的步长 = 1 + 未匹配字节数 >>> SKIP_STRENGTH */
+    private static final int SKIP_STRENGTH = 6;
+
+    private Lz4Block() {
+    }
+
+    /**
+     * 压缩
+     * @param data 原始数据
+     * @param threshold 阈值，小于它的不压缩
+     * @return 压缩后的数据，不压缩时返回null
+     */
+    public static byte[] compress(byte[] data, int threshold) {
+        int length = data.length;
+        if (length < threshold || length <= MF_LIMIT) {
+            return null;
+        }
+        // 输出达到原始长度就放弃
+        byte[] out = new byte[length];
+        out[0] = (byte) (length >>> 24);
+        out[1] = (byte) (length >>> 16);
+        out[2] = (byte) (length >>> 8);
+        out[3] = (byte) length;
+        int op = HEADER;
+        int hashLog = Math.max(MIN_HASH_LOG, Math.min(MAX_HASH_LOG, 32 - Integer.numberOfLeadingZeros(length) - 2));
+        int hashShift = 32 - hashLog;
+        int[] table = new int[1 << hashLog];
+        int matchStartLimit = length - MF_LIMIT;
+        int matchEndLimit = length - LAST_LITERALS;
+        int anchor = 0;
+        int ip = 0;
+        while (ip < matchStartLimit) {
+            int sequence = readInt(data, ip);
+            int hash = (sequence * -1640531535) >>> hashShift;
+            int ref = table[hash];
+            table[hash] = ip;
+            if (ref >= ip || ip - ref > MAX_OFFSET || readInt(data, ref) != sequence) {
+                ip += 1 + ((ip - anchor) >>> SKIP_STRENGTH);
+                continue;
+            }
+            // 向前、向后扩展匹配
+            while (ip > anchor && ref > 0 && data[ip - 1] == data[ref - 1]) {
+                --ip;
+                --ref;
+            }
+            int matchLength = MIN_MATCH;
+            while (ip + matchLength < matchEndLimit && data[ref + matchLength] == data[ip + matchLength]) {
+                ++matchLength;
+            }
+            int literalLength = ip - anchor;
+            if (op + sequenceBound(literalLength, matchLength) >= length) {
+                return null;
+            }
+            int token = op++;
+            op = writeLiterals(out, op, token, data, anchor, literalLength);
+            out[op++] = (byte) (ip - ref);
+            out[op++] = (byte) ((ip - ref) >>> 8);
+            int extra = matchLength - MIN_MATCH;
+            if (extra >= RUN_MASK) {
+                out[token] |= RUN_MASK;
+                op = writeLengthExtension(out, op, extra - RUN_MASK);
+            } else {
+                out[token] |= extra;
+            }
+            ip += matchLength;
+            anchor = ip;
+            // 匹配末尾也登记一下，连续的重复更容易接上
+            if (ip - 2 < matchStartLimit) {
+                table[(readInt(data, ip - 2) * -1640531535) >>> hashShift] = ip - 2;
+            }
+        }
+        // 最后的字面量
+        int literalLength = length - anchor;
+        if (op + sequenceBound(literalLength, 0) >= length) {
+            return null;
+        }
+        int token = op++;
+        op = writeLiterals(out, op, token, data, anchor, literalLength);
+        return Arrays.copyOf(out, op);
+    }
+
+    /**
+     * 解压
+     * @param packed compress 返回的数据
+     * @return 原始数据
+     * @throws IllegalStateException 数据损坏
+     */
+    public static byte[] decompress(byte[] packed) {
+        if (packed.length < HEADER + 1) {
+            throw new IllegalStateException("lz4 block too short: " + packed.length);
+        }
+        int length = (packed[0] & 0xFF) << 24 | (packed[1] & 0xFF) << 16 | (packed[2] & 0xFF) << 8 | (packed[3] & 0xFF);
+        if (length < 0 || length > (long) (packed.length - HEADER) * MAX_RATIO) {
+            throw new IllegalStateException("bad lz4 raw length: " + length + ", packed: " + packed.length);
+        }
+        byte[] out = new byte[length];
+        int ip = HEADER;
+        int op = 0;
+        while (true) {
+            int token = packed[ip++] & 0xFF;
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int b;
+                do {
+                    if (ip >= packed.length) {
+                        throw new IllegalStateException("lz4 block truncated at " + ip);
+                    }
+                    b = packed[ip++] & 0xFF;
+                    literalLength += b;
+                } while (b == 0xFF && literalLength <= length);
+            }
+            if (literalLength > packed.length - ip || literalLength > length - op) {
+                throw new IllegalStateException("bad lz4 literal length: " + literalLength + " at " + ip);
+            }
+            System.arraycopy(packed, ip, out, op, literalLength);
+            ip += literalLength;
+            op += literalLength;
+            // 最后一个序列只有字面量
+            if (ip == packed.length) {
+                break;
+            }
+            if (ip + 2 > packed.length) {
+                throw new IllegalStateException("lz4 block truncated at " + ip);
+            }
+            int offset = (packed[ip] & 0xFF) | (packed[ip + 1] & 0xFF) << 8;
+            ip += 2;
+            if (offset == 0 || offset > op) {
+                throw new IllegalStateException("bad lz4 offset: " + offset + " at " + op);
+            }
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                int b;
+                do {
+                    if (ip >= packed.length) {
+                        throw new IllegalStateException("lz4 block truncated at " + ip);
+                    }
+                    b = packed[ip++] & 0xFF;
+                    matchLength += b;
+                } while (b == 0xFF && matchLength <= length);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > length - op) {
+                throw new IllegalStateException("bad lz4 match length: " + matchLength + " at " + op);
+            }
+            int ref = op - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(out, ref, out, op, matchLength);
+                op += matchLength;
+            } else {
+                // 重叠的匹配逐字节复制，重复前面的内容
+                for (int end = op + matchLength; op < end; ++op, ++ref) {
+                    out[op] = out[ref];
+                }
+            }
+            if (ip >= packed.length) {
+                throw new IllegalStateException("lz4 block truncated at " + ip);
+            }
+        }
+        if (op != length) {
+            throw new IllegalStateException("lz4 raw length mismatch: " + op + ", expected: " + length);
+        }
+        return out;
+    }
+
+    /**
+     * 写token中的字面量长度、长度扩展和字面量
+     * @return 写完后的位置
+     */
+    private static int writeLiterals(byte[] out, int op, int token, byte[] data, int anchor, int literalLength) {
+        if (literalLength >= RUN_MASK) {
+            out[token] = (byte) (RUN_MASK << 4);
+            op = writeLengthExtension(out, op, literalLength - RUN_MASK);
+        } else {
+            out[token] = (byte) (literalLength << 4);
+        }
+        System.arraycopy(data, anchor, out, op, literalLength);
+        return op + literalLength;
+    }
+
+    /**
+     * 写长度扩展，每个255写一字节，最后写剩下的
+     * @return 写完后的位置
+     */
+    private static int writeLengthExtension(byte[] out, int op, int remaining) {
+        for (; remaining >= 0xFF; remaining -= 0xFF) {
+            out[op++] = (byte) 0xFF;
+        }
+        out[op++] = (byte) remaining;
+        return op;
+    }
+
+    /**
+     * 一个序列最多占的字节数
+     * @param literalLength 字面量长度
+     * @param matchLength 匹配长度，没有匹配时为0
+     * @return 字节数
+     */
+    private static int sequenceBound(int literalLength, int matchLength) {
+        return 1 + literalLength / 0xFF + 1 + literalLength + (matchLength == 0 ? 0 : 2 + matchLength / 0xFF + 1);
+    }
+
+    private static int readInt(byte[] data, int index) {
+        return (data[index] & 0xFF) | (data[index + 1] & 0xFF) << 8 | (data[index + 2] & 0xFF) << 16 | (data[index + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,22 @@
+package com.msxzm.core.serializer.runtime;
+
+/**
+ * 对象池，生成的 readPooled(inputStream, pool) 从池中取对象后用 readInto 复用读
+ * 取出的对象可能是用过的，readInto 会覆盖所有字段，并清空后复用其中的集合、Map、数组
+ * @param <T> 对象类型
+ * @author zenghongming
+ * @date 2026/10/17 21:40
+ */
+public interface ObjectPool<T> {
+    /**
+     * 取一个对象，池空时新建
+     * @return 对象
+     */
+    T acquire();
+
+    /**
+     * 归还一个对象，归还后调用方不能再使用
+     * @param instance 对象
+     */
+    void release(T instance);
+}
@@ -0,0 +1,169 @@
+package com.msxzm.core.serializer.runtime;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 生成的并行读写 writeParallel、readParallel 中大集合的分块编解码
+ * 集合的元素按 CHUNK_SIZE 个一块，每块写成 int元素个数 + int字节数 + 内容，块与块之间互不依赖，
+ * 写时每块在线程池中编码到自己的缓冲区，再按顺序拼到目标缓冲区；读时先扫出每块的位置，再在线程池中并行解码
+ * 第一块总是在调用线程上直接读写，只有一块时不用线程池
+ * @author zenghongming
+ * @date 2026/10/17 22:40
+ */
+public final class ParallelChunks {
+    /** 每块的元素个数 */
+    public static final int CHUNK_SIZE = 2048;
+    /** 块缓冲区的初始容量 */
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    /** 块缓冲区的最大容量 */
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private ParallelChunks() {
+    }
+
+    /**
+     * 编码一块
+     */
+    @FunctionalInterface
+    public interface ChunkWriter {
+        /**
+         * 把 elements[from, to) 写到缓冲区
+         * @param buffer 缓冲区
+         * @param elements 元素
+         * @param from 开始下标
+         * @param to 结束下标(不包括)
+         */
+        void write(ByteBuffer buffer, Object[] elements, int from, int to);
+    }
+
+    /**
+     * 解码一块
+     */
+    @FunctionalInterface
+    public interface ChunkReader {
+        /**
+         * 从缓冲区读出元素放到 elements[from, to)
+         * @param buffer 缓冲区
+         * @param elements 元素
+         * @param from 开始下标
+         * @param to 结束下标(不包括)
+         */
+        void read(ByteBuffer buffer, Object[] elements, int from, int to);
+    }
+
+    /**
+     * 分块并行写
+     * @param buffer 目标缓冲区
+     * @param elements 元素
+     * @param pool 线程池
+     * @param writer 编码一块
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static void write(ByteBuffer buffer, Object[] elements, ForkJoinPool pool, ChunkWriter writer) {
+        int chunkCount = (elements.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        ForkJoinTask<ByteBuffer>[] tasks = new ForkJoinTask[chunkCount];
+        ByteOrder order = buffer.order();
+        for (int chunk = 1; chunk < chunkCount; ++chunk) {
+            int from = chunk * CHUNK_SIZE;
+            int to = Math.min(elements.length, from + CHUNK_SIZE);
+            tasks[chunk] = pool.submit(() -> encode(order, elements, from, to, writer));
+        }
+        if (chunkCount > 0) {
+            // 第一块直接写到目标缓冲区，回填字节数
+            int to = Math.min(elements.length, CHUNK_SIZE);
+            buffer.putInt(to);
+            int start = ByteBuffers.reserve(buffer, Integer.BYTES);
+            writer.write(buffer, elements, 0, to);
+            buffer.putInt(start - Integer.BYTES, buffer.position() - start);
+        }
+        for (int chunk = 1; chunk < chunkCount; ++chunk) {
+            ByteBuffer encoded = tasks[chunk].join();
+            buffer.putInt(Math.min(elements.length - chunk * CHUNK_SIZE, CHUNK_SIZE));
+            buffer.putInt(encoded.remaining());
+            buffer.put(encoded);
+        }
+    }
+
+    /**
+     * 分块并行读
+     * @param buffer 源缓冲区
+     * @param size 元素个数
+     * @param pool 线程池
+     * @param reader 解码一块
+     * @return 元素
+     */
+    public static Object[] read(ByteBuffer buffer, int size, ForkJoinPool pool, ChunkReader reader) {
+        // 元素个数来自数据，先按每块至少有两个int的块头校验，再按它分配
+        int chunkCount = size / CHUNK_SIZE + (size % CHUNK_SIZE == 0 ? 0 : 1);
+        if (size < 0 || (long) chunkCount * Integer.BYTES * 2 > buffer.remaining()) {
+            throw new IllegalStateException("bad size: " + size + ", remaining: " + buffer.remaining());
+        }
+        Object[] elements = new Object[size];
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunkCount];
+        ByteBuffer first = null;
+        int firstCount = 0;
+        int chunk = 0;
+        for (int from = 0; from < size; ++chunk) {
+            int count = buffer.getInt();
+            int length = buffer.getInt();
+            // 写时除了最后一块都是 CHUNK_SIZE 个
+            if (count != Math.min(size - from, CHUNK_SIZE) || length < 0 || length > buffer.remaining()) {
+                throw new IllegalStateException("bad chunk, count: " + count + ", length: " + length + ", remaining: " + buffer.remaining());
+            }
+            ByteBuffer slice = buffer.slice();
+            slice.limit(length);
+            slice.order(buffer.order());
+            buffer.position(buffer.position() + length);
+            if (chunk == 0) {
+                first = slice;
+                firstCount = count;
+            } else {
+                int start = from;
+                tasks[chunk] = pool.submit(() -> decode(slice, elements, start, start + count, reader));
+            }
+            from += count;
+        }
+        if (first != null) {
+            decode(first, elements, 0, firstCount, reader);
+        }
+        for (int i = 1; i < chunk; ++i) {
+            tasks[i].join();
+        }
+        return elements;
+    }
+
+    /**
+     * 编码一块到新的缓冲区，空间不够时扩容重写
+     * 生成的ByteBuffer写(包括空出长度前缀)在空间不够时只抛 BufferOverflowException，其他异常是编码本身的错误，直接抛出
+     * @return 读模式的缓冲区
+     */
+    private static ByteBuffer encode(ByteOrder order, Object[] elements, int from, int to, ChunkWriter writer) {
+        for (int capacity = INITIAL_CAPACITY; ; capacity <<= 1) {
+            ByteBuffer chunk = ByteBuffer.allocate(capacity).order(order);
+            try {
+                writer.write(chunk, elements, from, to);
+                chunk.flip();
+                return chunk;
+            } catch (BufferOverflowException e) {
+                if (capacity >= MAX_CAPACITY) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 解码一块，必须正好读完
+     */
+    private static Void decode(ByteBuffer chunk, Object[] elements, int from, int to, ChunkReader reader) {
+        reader.read(chunk, elements, from, to);
+        if (chunk.hasRemaining()) {
+            throw new IllegalStateException("chunk not fully read, remaining: " + chunk.remaining());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,291 @@
+package com.msxzm.core.serializer.runtime;
+
+import com.msxzm.base.stream.InputStream;
+import com.msxzm.base.stream.OutputStream;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 引用共享模式用的对象表，每个线程一个，复用不分配
+ * 最外层的读写进入时绑定流、登记根对象，退出时清空；同一个流中对象按第一次出现的顺序编号，读写两边的编号一致
+ * 读写中途进入另一个流(比如自定义序列化写到自己的byte[])时换一张新表，退出后换回来，另一个流的数据不引用外层的对象
+ * 嵌套对象写成 变长int标记: 0 内联(直接调用序列化类) 1 通用写(子类等) n+2 引用第n个对象
+ * 通用读的对象由流创建，它的序列化类也是引用共享模式时，进入读时就登记到预留的编号上，环上引用回来的能找到它；
+ * 其他类在读完之前登记不了，写时遇到引用回这样还没写完的对象直接报错，不会读出null
+ * @author zenghongming
+ * @date 2026/10/17 20:40
+ */
+public final class ReferenceTable {
+    /** 标记 内联 */
+    public static final int INLINE = 0;
+    /** 标记 通用读写 */
+    public static final int GENERIC = 1;
+    /** 引用编号的偏移 */
+    public static final int REFERENCE_BASE = 2;
+    /** 初始容量 */
+    private static final int INITIAL_CAPACITY = 64;
+    /** 清空时保留的最大容量，超过的重新分配，避免一次大对象图之后一直占着内存 */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 12;
+    /** 每个线程的对象表 */
+    private static final ThreadLocal<ReferenceTable> TABLES = ThreadLocal.withInitial(ReferenceTable::new);
+
+    /** 嵌套深度 */
+    private int depth;
+    /** 绑定的流，深度为0时为null */
+    private Object stream;
+    /** 外层的表，最外层为null */
+    private ReferenceTable outer;
+    /** 读写另一个流时用的内层表，复用 */
+    private ReferenceTable inner;
+    /** 对象个数 */
+    private int size;
+    /** 编号 -> 对象，读时用 */
+    private Object[] objects = new Object[INITIAL_CAPACITY];
+    /** 写时用的开放寻址identity表 键 */
+    private Object[] keys = new Object[INITIAL_CAPACITY * 2];
+    /** 写时用的开放寻址identity表 编号 */
+    private int[] ids = new int[INITIAL_CAPACITY * 2];
+    /** 写时 编号 -> 是否是还没写完、读时也还没登记的通用写对象 */
+    private boolean[] unregistered = new boolean[INITIAL_CAPACITY];
+    /** 写时 刚写了通用写标记、等待它的序列化类进入的对象，没有时为null */
+    private Object pendingWrite;
+    /** 读时 通用读预留的、等待它的序列化类进入时登记的编号，没有时为-1 */
+    private int pendingRead = -1;
+
+    private ReferenceTable() {
+    }
+
+    /**
+     * 进入写，最外层时绑定流并登记根对象
+     * @param stream 输出流
+     * @param root 根对象
+     * @return 对象表
+     */
+    public static ReferenceTable enterWrite(Object stream, Object root) {
+        ReferenceTable table = enter(stream);
+        if (table.depth++ == 0) {
+            table.stream = stream;
+            table.put(root);
+        } else if (table.pendingWrite != null) {
+            // 通用写之后第一个进入的是它自己，说明读时也会在进入时登记
+            if (table.pendingWrite == root) {
+                table.unregistered[table.indexOf(root)] = false;
+            }
+            table.pendingWrite = null;
+        }
+        return table;
+    }
+
+    /**
+     * 进入读，最外层时绑定流并登记根对象
+     * @param stream 输入流
+     * @param root 根对象
+     * @return 对象表
+     */
+    public static ReferenceTable enterRead(Object stream, Object root) {
+        ReferenceTable table = enter(stream);
+        if (table.depth++ == 0) {
+            table.stream = stream;
+            table.add(root);
+        } else if (table.pendingRead >= 0) {
+            // 与写对称，通用读之后第一个进入的对象登记到预留的编号上
+            table.objects[table.pendingRead] = root;
+            table.pendingRead = -1;
+        }
+        return table;
+    }
+
+    /**
+     * 取当前线程读写这个流用的表，读写中途换了流时换成内层表
+     * @param stream 流
+     * @return 对象表
+     */
+    private static ReferenceTable enter(Object stream) {
+        ReferenceTable table = TABLES.get();
+        if (table.depth > 0 && table.stream != stream) {
+            if (table.inner == null) {
+                table.inner = new ReferenceTable();
+                table.inner.outer = table;
+            }
+            table = table.inner;
+            TABLES.set(table);
+        }
+        return table;
+    }
+
+    /**
+     * 退出，最外层时清空，内层表换回外层表
+     */
+    public void exit() {
+        if (--depth == 0) {
+            clear();
+            stream = null;
+            if (outer != null) {
+                TABLES.set(outer);
+            }
+        }
+    }
+
+    /**
+     * 写一个非null的嵌套对象的标记，已出现过的写引用，没出现过的登记
+     * @param outputStream 输出流
+     * @param value 对象
+     * @param inlineClass 可以内联的类，null表示都走通用写
+     * @return 需要调用方内联写对象 true
+     * @throws IOException IOException
+     */
+    public boolean writeReference(OutputStream outputStream, Object value, Class<?> inlineClass) throws IOException {
+        int id = indexOf(value);
+        if (id >= 0) {
+            if (unregistered[id]) {
+                throw new IOException("reference cycle through " + value.getClass().getName()
+                        + ", which is written by the stream and registered only after it is read; enable reference mode for its serializer");
+            }
+            VarInts.writeVarInt(outputStream, id + REFERENCE_BASE);
+            return false;
+        }
+        put(value);
+        if (value.getClass() == inlineClass) {
+            VarInts.writeVarInt(outputStream, INLINE);
+            return true;
+        }
+        VarInts.writeVarInt(outputStream, GENERIC);
+        id = size - 1;
+        unregistered[id] = true;
+        Object savedPending = pendingWrite;
+        pendingWrite = value;
+        try {
+            outputStream.write(value);
+        } finally {
+            pendingWrite = savedPending;
+            unregistered[id] = false;
+        }
+        return false;
+    }
+
+    /**
+     * 读一个非null的嵌套对象的标记
+     * @param inputStream 输入流
+     * @param <T> 类型
+     * @return 引用的对象或通用读的对象，需要调用方内联读时返回null(调用方new出来后先add再读)
+     * @throws IOException IOException
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T readReference(InputStream inputStream) throws IOException {
+        int flag = VarInts.readVarInt(inputStream);
+        if (flag == INLINE) {
+            return null;
+        }
+        if (flag == GENERIC) {
+            // 先占编号，读的过程中出现的对象排在后面
+            int id = add(null);
+            int savedPending = pendingRead;
+            pendingRead = id;
+            T value;
+            try {
+                value = inputStream.read();
+            } finally {
+                pendingRead = savedPending;
+            }
+            objects[id] = value;
+            return value;
+        }
+        int id = flag - REFERENCE_BASE;
+        if (id >= size) {
+            throw new IOException("reference out of range: " + id + ", size: " + size);
+        }
+        if (objects[id] == null) {
+            throw new IOException("reference to an object not registered yet: " + id);
+        }
+        return (T) objects[id];
+    }
+
+    /**
+     * 登记一个读出的对象
+     * @param value 对象
+     * @return 编号
+     */
+    public int add(Object value) {
+        if (size == objects.length) {
+            objects = Arrays.copyOf(objects, size << 1);
+        }
+        objects[size] = value;
+        return size++;
+    }
+
+    /**
+     * 写时登记一个对象
+     * @param value 对象
+     */
+    private void put(Object value) {
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        int mask = keys.length - 1;
+        int i = System.identityHashCode(value) & mask;
+        while (keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = value;
+        if (size == unregistered.length) {
+            unregistered = Arrays.copyOf(unregistered, size << 1);
+        }
+        ids[i] = size++;
+    }
+
+    /**
+     * 写时查找对象的编号
+     * @param value 对象
+     * @return 编号，没有返回-1
+     */
+    private int indexOf(Object value) {
+        int mask = keys.length - 1;
+        for (int i = System.identityHashCode(value) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == value) {
+                return ids[i];
+            }
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldIds = ids;
+        keys = new Object[capacity];
+        ids = new int[capacity];
+        int mask = capacity - 1;
+        for (int slot = 0; slot < oldKeys.length; ++slot) {
+            if (oldKeys[slot] == null) {
+                continue;
+            }
+            int i = System.identityHashCode(oldKeys[slot]) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[slot];
+            ids[i] = oldIds[slot];
+        }
+    }
+
+    private void clear() {
+        if (keys.length > MAX_RETAINED_CAPACITY) {
+            keys = new Object[INITIAL_CAPACITY * 2];
+            ids = new int[INITIAL_CAPACITY * 2];
+        } else {
+            Arrays.fill(keys, null);
+        }
+        if (objects.length > MAX_RETAINED_CAPACITY) {
+            objects = new Object[INITIAL_CAPACITY];
+        } else {
+            // 写时只用identity表，size可能超过objects的长度
+            Arrays.fill(objects, 0, Math.min(size, objects.length), null);
+        }
+        if (unregistered.length > MAX_RETAINED_CAPACITY) {
+            unregistered = new boolean[INITIAL_CAPACITY];
+        }
+        pendingWrite = null;
+        pendingRead = -1;
+        size = 0;
+    }
+}
@@ -0,0 +1,247 @@
+package com.msxzm.core.serializer.runtime;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * 用反射给对象填充样例数据，供生成的基准测试在Setup阶段使用，不在热路径上
+ * 基础类型按序号取值，数组、集合、Map填充固定个数的元素，嵌套对象递归填充到一定深度
+ * @author zenghongming
+ * @date 2026/10/17 15:40
+ */
+public final class SampleData {
+    /** 数组、集合、Map的默认元素个数 */
+    public static final int DEFAULT_SIZE = 16;
+    /** 嵌套对象的最大深度 */
+    private static final int MAX_DEPTH = 3;
+
+    private SampleData() {
+    }
+
+    /**
+     * 创建一个填充了样例数据的对象
+     * @param clazz 类
+     * @param <T> 类型
+     * @return 对象
+     */
+    public static <T> T create(Class<T> clazz) {
+        return create(clazz, DEFAULT_SIZE);
+    }
+
+    /**
+     * 创建一个填充了样例数据的对象
+     * @param clazz 类
+     * @param size 数组、集合、Map的元素个数
+     * @param <T> 类型
+     * @return 对象
+     */
+    public static <T> T create(Class<T> clazz, int size) {
+        T instance = newInstance(clazz);
+        if (instance == null) {
+            throw new IllegalArgumentException("no accessible constructor: " + clazz.getName());
+        }
+        fill(instance, size, 0);
+        return instance;
+    }
+
+    /**
+     * 填充对象的所有实例字段(包括父类)
+     * @param instance 对象
+     * @param size 元素个数
+     * @param depth 嵌套深度
+     */
+    private static void fill(Object instance, int size, int depth) {
+        int seed = 1;
+        for (Class<?> clazz = instance.getClass(); clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || Modifier.isTransient(modifiers)) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    field.set(instance, value(field.getGenericType(), size, depth, seed++));
+                } catch (RuntimeException | IllegalAccessException e) {
+                    // 填不了的字段保持默认值
+                }
+            }
+        }
+    }
+
+    /**
+     * 生成一个样例值
+     * @param type 类型
+     * @param size 元素个数
+     * @param depth 嵌套深度
+     * @param seed 序号
+     * @return 值，无法生成时返回null
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object value(Type type, int size, int depth, int seed) {
+        Class<?> clazz = rawClass(type);
+        if (clazz == null) {
+            return null;
+        }
+        Object primitive = primitiveValue(clazz, seed);
+        if (primitive != null) {
+            return primitive;
+        }
+        if (clazz.isArray()) {
+            Type componentType = type instanceof GenericArrayType ? ((GenericArrayType) type).getGenericComponentType() : clazz.getComponentType();
+            Object array = Array.newInstance(clazz.getComponentType(), size);
+            for (int i = 0; i < size; ++i) {
+                Array.set(array, i, value(componentType, size, depth + 1, seed + i));
+            }
+            return array;
+        }
+        if (clazz.isEnum()) {
+            Object[] constants = clazz.getEnumConstants();
+            return constants.length == 0 ? null : constants[seed % constants.length];
+        }
+        if (Collection.class.isAssignableFrom(clazz)) {
+            Collection collection = (Collection) newCollection(clazz);
+            Type elementType = typeArgument(type, clazz, Collection.class, 0);
+            for (int i = 0; collection != null && i < size; ++i) {
+                collection.add(value(elementType, size, depth + 1, seed + i));
+            }
+            return collection;
+        }
+        if (Map.class.isAssignableFrom(clazz)) {
+            Map map = (Map) newCollection(clazz);
+            Type keyType = typeArgument(type, clazz, Map.class, 0);
+            Type valueType = typeArgument(type, clazz, Map.class, 1);
+            for (int i = 0; map != null && i < size; ++i) {
+                map.put(value(keyType, size, depth + 1, seed + i), value(valueType, size, depth + 1, seed + i));
+            }
+            return map;
+        }
+        // 嵌套对象
+        if (depth >= MAX_DEPTH || clazz == Object.class) {
+            return null;
+        }
+        Object instance = newInstance(clazz);
+        if (instance != null) {
+            fill(instance, size, depth + 1);
+        }
+        return instance;
+    }
+
+    /**
+     * 基础类型、包装类型、字符串的样例值
+     * @param clazz 类
+     * @param seed 序号
+     * @return 值，不是这些类型时返回null
+     */
+    private static Object primitiveValue(Class<?> clazz, int seed) {
+        if (clazz == boolean.class || clazz == Boolean.class) {
+            return (seed & 1) == 0;
+        }
+        if (clazz == byte.class || clazz == Byte.class) {
+            return (byte) seed;
+        }
+        if (clazz == short.class || clazz == Short.class) {
+            return (short) (seed * 31);
+        }
+        if (clazz == int.class || clazz == Integer.class) {
+            return seed * 1009;
+        }
+        if (clazz == long.class || clazz == Long.class) {
+            return seed * 1000003L;
+        }
+        if (clazz == float.class || clazz == Float.class) {
+            return seed * 1.5f;
+        }
+        if (clazz == double.class || clazz == Double.class) {
+            return seed * 2.25;
+        }
+        if (clazz == String.class) {
+            return "sample-" + seed;
+        }
+        return null;
+    }
+
+    /**
+     * 创建集合或Map，接口和抽象类用常用实现
+     * @param clazz 声明的类型
+     * @return 集合，无法创建时返回null
+     */
+    private static Object newCollection(Class<?> clazz) {
+        if (!clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers())) {
+            return newInstance(clazz);
+        }
+        if (Map.class.isAssignableFrom(clazz)) {
+            return SortedMap.class.isAssignableFrom(clazz) ? new TreeMap<>() : new HashMap<>();
+        }
+        if (Set.class.isAssignableFrom(clazz)) {
+            return SortedSet.class.isAssignableFrom(clazz) ? new TreeSet<>() : new HashSet<>();
+        }
+        if (Queue.class.isAssignableFrom(clazz)) {
+            return new ArrayDeque<>();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * 用无参构造方法创建对象
+     * @param clazz 类
+     * @return 对象，没有可用的构造方法时返回null
+     */
+    private static <T> T newInstance(Class<T> clazz) {
+        if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<T> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 泛型类型的原始类
+     * @param type 类型
+     * @return 原始类，类型变量、通配符返回null
+     */
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return rawClass(((ParameterizedType) type).getRawType());
+        }
+        if (type instanceof GenericArrayType) {
+            Class<?> componentClass = rawClass(((GenericArrayType) type).getGenericComponentType());
+            return componentClass == null ? null : Array.newInstance(componentClass, 0).getClass();
+        }
+        return null;
+    }
+
+    /**
+     * 取集合、Map的泛型参数，声明时没带泛型的(如IntArrayList)从父类上找
+     * @param type 声明的类型
+     * @param clazz 原始类
+     * @param target Collection或Map
+     * @param index 泛型参数下标
+     * @return 泛型参数，找不到时返回Object
+     */
+    private static Type typeArgument(Type type, Class<?> clazz, Class<?> target, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] args = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < args.length) {
+                return args[index];
+            }
+        }
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            Type superType = c.getGenericSuperclass();
+            if (superType instanceof ParameterizedType && target.isAssignableFrom(rawClass(superType))) {
+                Type[] args = ((ParameterizedType) superType).getActualTypeArguments();
+                if (index < args.length && args[index] instanceof Class) {
+                    return args[index];
+                }
+            }
+        }
+        return Object.class;
+    }
+}
@@ -0,0 +1,243 @@
+package com.msxzm.core.serializer.runtime;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 生成的序列化类的运行指标，开启 -Aserializer.metrics 的类在序列化类初始化时登记一个
+ * 计数都是分段的LongAdder，多线程读写不争用；耗时按 1/SAMPLE_RATE 采样，不采样的调用不取时间
+ * 所有登记的指标可以通过 all() 取，或者调用 enableJmx() 注册到平台MBeanServer
+ * @author zenghongming
+ * @date 2026/10/17 22:20
+ */
+public final class SerializerMetrics implements SerializerMetricsMXBean {
+    /** 耗时采样率，每多少次调用采一次，2的幂 */
+    public static final int SAMPLE_RATE = 64;
+    /** 不采样时 enter 的返回值 */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+    /** JMX的域 */
+    private static final String JMX_DOMAIN = "com.msxzm.serializer";
+    /** 所有登记的指标 类名 -> 指标 */
+    private static final ConcurrentMap<String, SerializerMetrics> REGISTRY = new ConcurrentHashMap<>();
+    /** 是否注册到JMX，之后登记的也注册 */
+    private static volatile boolean jmxEnabled;
+
+    /** 被序列化的类名 */
+    private final String name;
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAdder readCount = new LongAdder();
+    private final LongAdder writeBytes = new LongAdder();
+    private final LongAdder readBytes = new LongAdder();
+    private final LongAdder writeSamples = new LongAdder();
+    private final LongAdder readSamples = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+
+    private SerializerMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 登记一个类的指标，同一个类重复登记返回同一个
+     * @param type 被序列化的类
+     * @return 指标
+     */
+    public static SerializerMetrics register(Class<?> type) {
+        return REGISTRY.computeIfAbsent(type.getName(), name -> {
+            SerializerMetrics metrics = new SerializerMetrics(name);
+            if (jmxEnabled) {
+                try {
+                    registerMBean(metrics);
+                } catch (JMException ignored) {
+                    // 在序列化类初始化时调用，监控失败不能影响序列化
+                }
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * 取一个类的指标
+     * @param type 被序列化的类
+     * @return 指标，没有开启或序列化类还没初始化时为null
+     */
+    public static SerializerMetrics get(Class<?> type) {
+        return REGISTRY.get(type.getName());
+    }
+
+    /**
+     * @return 所有登记的指标
+     */
+    public static Collection<SerializerMetrics> all() {
+        return Collections.unmodifiableCollection(REGISTRY.values());
+    }
+
+    /**
+     * 所有指标注册到平台MBeanServer，之后登记的也会注册
+     * ObjectName为 com.msxzm.serializer:type=SerializerMetrics,name="类名"
+     */
+    public static synchronized void enableJmx() {
+        if (jmxEnabled) {
+            return;
+        }
+        jmxEnabled = true;
+        for (SerializerMetrics metrics : REGISTRY.values()) {
+            try {
+                registerMBean(metrics);
+            } catch (JMException e) {
+                throw new IllegalStateException("register serializer metrics failed: " + metrics.name, e);
+            }
+        }
+    }
+
+    private static void registerMBean(SerializerMetrics metrics) throws JMException {
+        ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=SerializerMetrics,name=" + ObjectName.quote(metrics.name));
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+        } catch (InstanceAlreadyExistsException ignored) {
+            // 并发登记时可能已经注册过了
+        }
+    }
+
+    /**
+     * 是否采样这次调用
+     * @return 采样 true
+     */
+    private static boolean sample() {
+        return (ThreadLocalRandom.current().nextInt() & (SAMPLE_RATE - 1)) == 0;
+    }
+
+    /**
+     * 进入write
+     * @return 采样时为开始时间，否则为 NOT_SAMPLED
+     */
+    public long enterWrite() {
+        writeCount.increment();
+        return sample() ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * 退出write
+     * @param start enterWrite 的返回值
+     */
+    public void exitWrite(long start) {
+        if (start != NOT_SAMPLED) {
+            writeNanos.add(System.nanoTime() - start);
+            writeSamples.increment();
+        }
+    }
+
+    /**
+     * 退出ByteBuffer write
+     * @param start enterWrite 的返回值
+     * @param bytes 写入的字节数
+     */
+    public void exitWrite(long start, int bytes) {
+        writeBytes.add(bytes);
+        exitWrite(start);
+    }
+
+    /**
+     * 进入read
+     * @return 采样时为开始时间，否则为 NOT_SAMPLED
+     */
+    public long enterRead() {
+        readCount.increment();
+        return sample() ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * 退出read
+     * @param start enterRead 的返回值
+     */
+    public void exitRead(long start) {
+        if (start != NOT_SAMPLED) {
+            readNanos.add(System.nanoTime() - start);
+            readSamples.increment();
+        }
+    }
+
+    /**
+     * 退出ByteBuffer read
+     * @param start enterRead 的返回值
+     * @param bytes 读出的字节数
+     */
+    public void exitRead(long start, int bytes) {
+        readBytes.add(bytes);
+        exitRead(start);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getWriteCount() {
+        return writeCount.sum();
+    }
+
+    @Override
+    public long getReadCount() {
+        return readCount.sum();
+    }
+
+    @Override
+    public long getWriteBytes() {
+        return writeBytes.sum();
+    }
+
+    @Override
+    public long getReadBytes() {
+        return readBytes.sum();
+    }
+
+    @Override
+    public long getWriteSampleCount() {
+        return writeSamples.sum();
+    }
+
+    @Override
+    public long getReadSampleCount() {
+        return readSamples.sum();
+    }
+
+    @Override
+    public long getAverageWriteNanos() {
+        long samples = writeSamples.sum();
+        return samples == 0 ? 0 : writeNanos.sum() / samples;
+    }
+
+    @Override
+    public long getAverageReadNanos() {
+        long samples = readSamples.sum();
+        return samples == 0 ? 0 : readNanos.sum() / samples;
+    }
+
+    @Override
+    public void reset() {
+        writeCount.reset();
+        readCount.reset();
+        writeBytes.reset();
+        readBytes.reset();
+        writeSamples.reset();
+        readSamples.reset();
+        writeNanos.reset();
+        readNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return name + "[write=" + getWriteCount() + ", read=" + getReadCount()
+                + ", writeBytes=" + getWriteBytes() + ", readBytes=" + getReadBytes()
+                + ", avgWriteNanos=" + getAverageWriteNanos() + ", avgReadNanos=" + getAverageReadNanos() + "]";
+    }
+}
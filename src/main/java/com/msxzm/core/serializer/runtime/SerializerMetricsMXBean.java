@@ -0,0 +1,59 @@
+package com.msxzm.core.serializer.runtime;
+
+/**
+ * 序列化类的运行指标，通过JMX查看
+ * 调用次数每次都记，耗时按采样记，字节数只有ByteBuffer读写才有
+ * @author zenghongming
+ * @date 2026/10/17 22:20
+ */
+public interface SerializerMetricsMXBean {
+    /**
+     * @return 被序列化的类名
+     */
+    String getName();
+
+    /**
+     * @return write调用次数
+     */
+    long getWriteCount();
+
+    /**
+     * @return read调用次数
+     */
+    long getReadCount();
+
+    /**
+     * @return ByteBuffer write写入的字节数
+     */
+    long getWriteBytes();
+
+    /**
+     * @return ByteBuffer read读出的字节数
+     */
+    long getReadBytes();
+
+    /**
+     * @return write采样次数
+     */
+    long getWriteSampleCount();
+
+    /**
+     * @return read采样次数
+     */
+    long getReadSampleCount();
+
+    /**
+     * @return 采样的write平均耗时(纳秒)，没有采样时为0
+     */
+    long getAverageWriteNanos();
+
+    /**
+     * @return 采样的read平均耗时(纳秒)，没有采样时为0
+     */
+    long getAverageReadNanos();
+
+    /**
+     * 清零
+     */
+    void reset();
+}
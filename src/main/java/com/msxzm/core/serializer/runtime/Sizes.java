@@ -0,0 +1,44 @@
+package com.msxzm.core.serializer.runtime;
+
+/**
+ * 生成的sizeOf方法用到的字节数计算
+ * 字符串的编码由流决定，这里取UTF-8和Java修改版UTF-8(DataOutput.writeUTF)中较长的字节数，
+ * 再加上最长的长度前缀，结果不小于实际写入的字节数
+ * @author zenghongming
+ * @date 2026/10/17 18:10
+ */
+public final class Sizes {
+    /** 字符串长度前缀的最大字节数(int或者变长int) */
+    public static final int MAX_STRING_PREFIX = 5;
+
+    private Sizes() {
+    }
+
+    /**
+     * 字符串写入的字节数上限
+     * @param value 字符串，不为null
+     * @return 字节数
+     */
+    public static int sizeOfString(String value) {
+        return MAX_STRING_PREFIX + maxEncodedLength(value);
+    }
+
+    /**
+     * 编码后的最大字节数，修改版UTF-8中'\0'占2字节，代理字符各占3字节
+     * @param value 字符串
+     * @return 字节数
+     */
+    private static int maxEncodedLength(String value) {
+        int length = value.length();
+        int size = length;
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            if (c >= 0x800) {
+                size += 2;
+            } else if (c >= 0x80 || c == 0) {
+                size += 1;
+            }
+        }
+        return size;
+    }
+}
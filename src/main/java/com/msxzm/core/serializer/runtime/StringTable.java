@@ -0,0 +1,240 @@
+package com.msxzm.core.serializer.runtime;
+
+import com.msxzm.base.stream.InputStream;
+import com.msxzm.base.stream.OutputStream;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 字典编码的字符串表，每个线程一个，复用不分配
+ * 最外层的读写进入时绑定流，退出时清空，同一个流的一次读写(包括嵌套对象)中字符串按第一次出现的顺序编号，读写两边的编号一致；
+ * 读写中途进入另一个流(比如自定义序列化写到自己的byte[])时换一张新表，退出后换回来，另一个流的数据不引用外层的字符串；
+ * 批量读写时调用方可以在外面 enter/exit，整批共用一张表
+ * 字符串写成 变长int标记: 0 字面量(后面跟writeString) n+1 引用第n个字符串，表满了之后的字符串都写字面量
+ * @author zenghongming
+ * @date 2026/10/17 21:00
+ */
+public final class StringTable {
+    /** 标记 字面量 */
+    public static final int LITERAL = 0;
+    /** 引用编号的偏移 */
+    public static final int REFERENCE_BASE = 1;
+    /** 表的最大字符串个数，引用编号的变长int不超过3字节 */
+    public static final int MAX_SIZE = 1 << 16;
+    /** 初始容量 */
+    private static final int INITIAL_CAPACITY = 64;
+    /** 清空时保留的最大容量，超过的重新分配 */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 12;
+    /** 驻留缓存的大小 */
+    private static final int INTERN_CACHE_SIZE = 1 << 12;
+    /**
+     * 全局的有损驻留缓存，按哈希直接映射，冲突时覆盖旧的
+     * 不加锁，String不可变，多线程下最坏情况是没命中
+     */
+    private static final String[] INTERN_CACHE = new String[INTERN_CACHE_SIZE];
+    /** 每个线程的字符串表 */
+    private static final ThreadLocal<StringTable> TABLES = ThreadLocal.withInitial(StringTable::new);
+
+    /** 嵌套深度 */
+    private int depth;
+    /** 绑定的流，深度为0时为null */
+    private Object stream;
+    /** 外层的表，最外层为null */
+    private StringTable outer;
+    /** 读写另一个流时用的内层表，复用 */
+    private StringTable inner;
+    /** 字符串个数 */
+    private int size;
+    /** 编号 -> 字符串，读时用 */
+    private String[] strings = new String[INITIAL_CAPACITY];
+    /** 写时用的开放寻址表 键 */
+    private String[] keys = new String[INITIAL_CAPACITY * 2];
+    /** 写时用的开放寻址表 编号 */
+    private int[] ids = new int[INITIAL_CAPACITY * 2];
+
+    private StringTable() {
+    }
+
+    /**
+     * 进入读写，最外层时绑定流；读写中途换了流时换成内层表
+     * @param stream 读写的流
+     * @return 字符串表
+     */
+    public static StringTable enter(Object stream) {
+        StringTable table = TABLES.get();
+        if (table.depth > 0 && table.stream != stream) {
+            if (table.inner == null) {
+                table.inner = new StringTable();
+                table.inner.outer = table;
+            }
+            table = table.inner;
+            TABLES.set(table);
+        }
+        if (table.depth++ == 0) {
+            table.stream = stream;
+        }
+        return table;
+    }
+
+    /**
+     * 退出，最外层时清空，内层表换回外层表
+     */
+    public void exit() {
+        if (--depth == 0) {
+            clear();
+            stream = null;
+            if (outer != null) {
+                TABLES.set(outer);
+            }
+        }
+    }
+
+    /**
+     * 写一个字符串，出现过的写引用
+     * @param outputStream 输出流
+     * @param value 字符串，不为null
+     * @throws IOException IOException
+     */
+    public void writeString(OutputStream outputStream, String value) throws IOException {
+        int id = indexOf(value);
+        if (id >= 0) {
+            VarInts.writeVarInt(outputStream, id + REFERENCE_BASE);
+            return;
+        }
+        if (size < MAX_SIZE) {
+            put(value);
+        }
+        VarInts.writeVarInt(outputStream, LITERAL);
+        outputStream.writeString(value);
+    }
+
+    /**
+     * 读一个字符串
+     * @param inputStream 输入流
+     * @param intern 字面量是否经过驻留缓存
+     * @return 字符串
+     * @throws IOException IOException
+     */
+    public String readString(InputStream inputStream, boolean intern) throws IOException {
+        int flag = VarInts.readVarInt(inputStream);
+        if (flag == LITERAL) {
+            String value = intern ? intern(inputStream.readString()) : inputStream.readString();
+            if (size < MAX_SIZE) {
+                add(value);
+            }
+            return value;
+        }
+        int id = flag - REFERENCE_BASE;
+        if (id >= size) {
+            throw new IOException("string reference out of range: " + id + ", size: " + size);
+        }
+        return strings[id];
+    }
+
+    /**
+     * 经过全局驻留缓存，相同内容的字符串尽量共用一个实例，减少长期持有的重复字符串
+     * @param value 字符串
+     * @return 缓存中相同内容的字符串，没命中时返回并缓存参数本身
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        int index = hash(value) & (INTERN_CACHE_SIZE - 1);
+        String cached = INTERN_CACHE[index];
+        if (value.equals(cached)) {
+            return cached;
+        }
+        INTERN_CACHE[index] = value;
+        return value;
+    }
+
+    /**
+     * 读时登记一个字符串
+     * @param value 字符串
+     */
+    private void add(String value) {
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, size << 1);
+        }
+        strings[size++] = value;
+    }
+
+    /**
+     * 写时登记一个字符串
+     * @param value 字符串
+     */
+    private void put(String value) {
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        int mask = keys.length - 1;
+        int i = hash(value) & mask;
+        while (keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = value;
+        ids[i] = size++;
+    }
+
+    /**
+     * 写时查找字符串的编号
+     * @param value 字符串
+     * @return 编号，没有返回-1
+     */
+    private int indexOf(String value) {
+        int mask = keys.length - 1;
+        for (int i = hash(value) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(value)) {
+                return ids[i];
+            }
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldIds = ids;
+        keys = new String[capacity];
+        ids = new int[capacity];
+        int mask = capacity - 1;
+        for (int slot = 0; slot < oldKeys.length; ++slot) {
+            if (oldKeys[slot] == null) {
+                continue;
+            }
+            int i = hash(oldKeys[slot]) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[slot];
+            ids[i] = oldIds[slot];
+        }
+    }
+
+    private void clear() {
+        if (keys.length > MAX_RETAINED_CAPACITY) {
+            keys = new String[INITIAL_CAPACITY * 2];
+            ids = new int[INITIAL_CAPACITY * 2];
+        } else {
+            Arrays.fill(keys, null);
+        }
+        if (strings.length > MAX_RETAINED_CAPACITY) {
+            strings = new String[INITIAL_CAPACITY];
+        } else {
+            // 写时只用开放寻址表，size可能超过strings的长度
+            Arrays.fill(strings, 0, Math.min(size, strings.length), null);
+        }
+        size = 0;
+    }
+
+    /**
+     * String.hashCode的低位分布不好，混一下高位
+     * @param value 字符串
+     * @return 哈希
+     */
+    private static int hash(String value) {
+        int h = value.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
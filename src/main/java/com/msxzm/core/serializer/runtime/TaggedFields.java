@@ -0,0 +1,84 @@
+package com.msxzm.core.serializer.runtime;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 带标签的ByteBuffer格式(schema演进)用到的常量和跳过未知字段
+ * 消息为 int消息字节数 + long布局指纹 + 若干(变长int键 + 值)，键 = 字段标签 << 3 | 值类型，
+ * 定长和变长整数的值直接写，字符串写成 变长int(UTF-8字节数 + 1，0表示null) + 内容，
+ * 其余的值都是 int字节数 + 内容 的块，不认识的键按值类型跳过
+ * @author zenghongming
+ * @date 2026/10/17 20:10
+ */
+public final class TaggedFields {
+    /** 值类型占的位数 */
+    public static final int WIRE_TYPE_BITS = 3;
+    /** 值类型 1字节 */
+    public static final int FIXED8 = 0;
+    /** 值类型 2字节 */
+    public static final int FIXED16 = 1;
+    /** 值类型 4字节 */
+    public static final int FIXED32 = 2;
+    /** 值类型 8字节 */
+    public static final int FIXED64 = 3;
+    /** 值类型 变长整数 */
+    public static final int VARINT = 4;
+    /** 值类型 int字节数 + 内容 */
+    public static final int BLOCK = 5;
+    /** 值类型 可以为null的字符串，变长int(UTF-8字节数 + 1) + 内容 */
+    public static final int STRING = 6;
+    /** 父类部分的键，标签固定为0 */
+    public static final int SUPER_KEY = BLOCK;
+    /** 消息头的字节数，消息字节数 + 布局指纹 */
+    public static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    private TaggedFields() {
+    }
+
+    /**
+     * 键
+     * @param tag 字段标签
+     * @param wireType 值类型
+     * @return 键
+     */
+    public static int key(int tag, int wireType) {
+        return tag << WIRE_TYPE_BITS | wireType;
+    }
+
+    /**
+     * 跳过一个不认识的字段的值
+     * @param buffer 缓冲区
+     * @param key 键
+     */
+    public static void skip(ByteBuffer buffer, int key) {
+        switch (key & ((1 << WIRE_TYPE_BITS) - 1)) {
+            case FIXED8:
+                buffer.position(buffer.position() + Byte.BYTES);
+                break;
+            case FIXED16:
+                buffer.position(buffer.position() + Short.BYTES);
+                break;
+            case FIXED32:
+                buffer.position(buffer.position() + Integer.BYTES);
+                break;
+            case FIXED64:
+                buffer.position(buffer.position() + Long.BYTES);
+                break;
+            case VARINT:
+                VarInts.readVarLong(buffer);
+                break;
+            case BLOCK:
+                int length = buffer.getInt();
+                buffer.position(buffer.position() + length);
+                break;
+            case STRING:
+                int stringLength = VarInts.readVarInt(buffer);
+                if (stringLength > 0) {
+                    buffer.position(buffer.position() + stringLength - 1);
+                }
+                break;
+            default:
+                throw new IllegalStateException("unknown wire type, key: " + key);
+        }
+    }
+}
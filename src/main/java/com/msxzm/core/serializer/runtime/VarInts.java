@@ -0,0 +1,267 @@
+package com.msxzm.core.serializer.runtime;
+
+import com.msxzm.base.stream.InputStream;
+import com.msxzm.base.stream.OutputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 变长整数编码，每个字节低7位存数据，最高位表示后面还有字节
+ * 有符号数先做zig-zag编码，让绝对值小的负数也能编码得很短
+ * 流和ByteBuffer两套读写的编码相同
+ * @author zenghongming
+ * @date 2026/10/17 11:05
+ */
+public final class VarInts {
+    /** 数据位 */
+    private static final int DATA_BITS = 0x7F;
+    /** 后续标记位 */
+    private static final int CONTINUE_BIT = 0x80;
+    /** 每个字节的数据位数 */
+    private static final int BITS_PER_BYTE = 7;
+
+    private VarInts() {
+    }
+
+    /**
+     * 写一个无符号变长int(长度等非负数)
+     * @param outputStream 输出流
+     * @param value 值
+     * @throws IOException IOException
+     */
+    public static void writeVarInt(OutputStream outputStream, int value) throws IOException {
+        while ((value & ~DATA_BITS) != 0) {
+            outputStream.writeByte((byte) ((value & DATA_BITS) | CONTINUE_BIT));
+            value >>>= BITS_PER_BYTE;
+        }
+        outputStream.writeByte((byte) value);
+    }
+
+    /**
+     * 读一个无符号变长int
+     * @param inputStream 输入流
+     * @return 值
+     * @throws IOException IOException
+     */
+    public static int readVarInt(InputStream inputStream) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += BITS_PER_BYTE) {
+            byte b = inputStream.readByte();
+            value |= (b & DATA_BITS) << shift;
+            if ((b & CONTINUE_BIT) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * 写一个无符号变长long
+     * @param outputStream 输出流
+     * @param value 值
+     * @throws IOException IOException
+     */
+    public static void writeVarLong(OutputStream outputStream, long value) throws IOException {
+        while ((value & ~DATA_BITS) != 0) {
+            outputStream.writeByte((byte) ((value & DATA_BITS) | CONTINUE_BIT));
+            value >>>= BITS_PER_BYTE;
+        }
+        outputStream.writeByte((byte) value);
+    }
+
+    /**
+     * 读一个无符号变长long
+     * @param inputStream 输入流
+     * @return 值
+     * @throws IOException IOException
+     */
+    public static long readVarLong(InputStream inputStream) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += BITS_PER_BYTE) {
+            byte b = inputStream.readByte();
+            value |= (long) (b & DATA_BITS) << shift;
+            if ((b & CONTINUE_BIT) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varlong");
+    }
+
+    /**
+     * 写一个zig-zag编码的有符号int
+     * @param outputStream 输出流
+     * @param value 值
+     * @throws IOException IOException
+     */
+    public static void writeZigZagInt(OutputStream outputStream, int value) throws IOException {
+        writeVarInt(outputStream, (value << 1) ^ (value >> (Integer.SIZE - 1)));
+    }
+
+    /**
+     * 读一个zig-zag编码的有符号int
+     * @param inputStream 输入流
+     * @return 值
+     * @throws IOException IOException
+     */
+    public static int readZigZagInt(InputStream inputStream) throws IOException {
+        int value = readVarInt(inputStream);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 写一个zig-zag编码的有符号long
+     * @param outputStream 输出流
+     * @param value 值
+     * @throws IOException IOException
+     */
+    public static void writeZigZagLong(OutputStream outputStream, long value) throws IOException {
+        writeVarLong(outputStream, (value << 1) ^ (value >> (Long.SIZE - 1)));
+    }
+
+    /**
+     * 读一个zig-zag编码的有符号long
+     * @param inputStream 输入流
+     * @return 值
+     * @throws IOException IOException
+     */
+    public static long readZigZagLong(InputStream inputStream) throws IOException {
+        long value = readVarLong(inputStream);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 无符号变长int的字节数
+     * @param value 值
+     * @return 字节数
+     */
+    public static int sizeOfVarInt(int value) {
+        // 有效位数按7位一组向上取整，0占1字节
+        return (Integer.SIZE - Integer.numberOfLeadingZeros(value | 1) + BITS_PER_BYTE - 1) / BITS_PER_BYTE;
+    }
+
+    /**
+     * 无符号变长long的字节数
+     * @param value 值
+     * @return 字节数
+     */
+    public static int sizeOfVarLong(long value) {
+        return (Long.SIZE - Long.numberOfLeadingZeros(value | 1) + BITS_PER_BYTE - 1) / BITS_PER_BYTE;
+    }
+
+    /**
+     * zig-zag编码的有符号int的字节数
+     * @param value 值
+     * @return 字节数
+     */
+    public static int sizeOfZigZagInt(int value) {
+        return sizeOfVarInt((value << 1) ^ (value >> (Integer.SIZE - 1)));
+    }
+
+    /**
+     * zig-zag编码的有符号long的字节数
+     * @param value 值
+     * @return 字节数
+     */
+    public static int sizeOfZigZagLong(long value) {
+        return sizeOfVarLong((value << 1) ^ (value >> (Long.SIZE - 1)));
+    }
+
+    /**
+     * 写一个无符号变长int
+     * @param buffer 缓冲区
+     * @param value 值
+     */
+    public static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~DATA_BITS) != 0) {
+            buffer.put((byte) ((value & DATA_BITS) | CONTINUE_BIT));
+            value >>>= BITS_PER_BYTE;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * 读一个无符号变长int
+     * @param buffer 缓冲区
+     * @return 值
+     */
+    public static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += BITS_PER_BYTE) {
+            byte b = buffer.get();
+            value |= (b & DATA_BITS) << shift;
+            if ((b & CONTINUE_BIT) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("malformed varint");
+    }
+
+    /**
+     * 写一个无符号变长long
+     * @param buffer 缓冲区
+     * @param value 值
+     */
+    public static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~DATA_BITS) != 0) {
+            buffer.put((byte) ((value & DATA_BITS) | CONTINUE_BIT));
+            value >>>= BITS_PER_BYTE;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * 读一个无符号变长long
+     * @param buffer 缓冲区
+     * @return 值
+     */
+    public static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += BITS_PER_BYTE) {
+            byte b = buffer.get();
+            value |= (long) (b & DATA_BITS) << shift;
+            if ((b & CONTINUE_BIT) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("malformed varlong");
+    }
+
+    /**
+     * 写一个zig-zag编码的有符号int
+     * @param buffer 缓冲区
+     * @param value 值
+     */
+    public static void writeZigZagInt(ByteBuffer buffer, int value) {
+        writeVarInt(buffer, (value << 1) ^ (value >> (Integer.SIZE - 1)));
+    }
+
+    /**
+     * 读一个zig-zag编码的有符号int
+     * @param buffer 缓冲区
+     * @return 值
+     */
+    public static int readZigZagInt(ByteBuffer buffer) {
+        int value = readVarInt(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 写一个zig-zag编码的有符号long
+     * @param buffer 缓冲区
+     * @param value 值
+     */
+    public static void writeZigZagLong(ByteBuffer buffer, long value) {
+        writeVarLong(buffer, (value << 1) ^ (value >> (Long.SIZE - 1)));
+    }
+
+    /**
+     * 读一个zig-zag编码的有符号long
+     * @param buffer 缓冲区
+     * @return 值
+     */
+    public static long readZigZagLong(ByteBuffer buffer) {
+        long value = readVarLong(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * 生成的序列化类运行时依赖的辅助类(变长整数、ByteBuffer读写、字符串表、对象表、基础类型集合等)
+ * 打包时单独生成 serializer-poet-runtime.jar(classifier runtime)，只依赖 com.msxzm:base，
+ * 使用方编译和运行时依赖它，注解处理器本身(连同javapoet)只放在 annotationProcessorPaths 中:
+ * <pre>
+ * &lt;dependency&gt;
+ *     &lt;groupId&gt;com.msxzm.core&lt;/groupId&gt;
+ *     &lt;artifactId&gt;serializer-poet&lt;/artifactId&gt;
+ *     &lt;version&gt;1.0&lt;/version&gt;
+ *     &lt;classifier&gt;runtime&lt;/classifier&gt;
+ * &lt;/dependency&gt;
+ * </pre>
+ * annotationProcessorPaths 中加上 serializer-poet 和 com.squareup:javapoet(处理器的依赖是optional的，不会传递)
+ * @author zenghongming
+ * @date 2026/10/18 10:00
+ */
+package com.msxzm.core.serializer.runtime;
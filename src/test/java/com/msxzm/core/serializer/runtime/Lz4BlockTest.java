@@ -0,0 +1,170 @@
+package com.msxzm.core.serializer.runtime;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Lz4Block 的压缩解压往返和损坏数据的测试
+ * @author zenghongming
+ * @date 2026/10/18 11:00
+ */
+public class Lz4BlockTest {
+
+    @Test
+    public void roundTrip() {
+        Random random = new Random(3);
+        String[] words = {"level", "score", "player", "item", "count", ":", ",", " "};
+        for (int size : new int[]{64, 255, 256, 1000, 4096, 65535, 65536, 70000, 1 << 20}) {
+            // 少量词随机组合，可压缩
+            byte[] data = new byte[size];
+            for (int i = 0; i < size; ) {
+                for (byte b : words[random.nextInt(words.length)].getBytes(StandardCharsets.UTF_8)) {
+                    if (i < size) {
+                        data[i++] = b;
+                    }
+                }
+            }
+            assertRoundTrip(data);
+        }
+        // 长的重复、重叠匹配、超过255的字面量和匹配长度扩展
+        byte[] repeated = new byte[100_000];
+        Arrays.fill(repeated, (byte) 7);
+        assertRoundTrip(repeated);
+        byte[] mixed = new byte[50_000];
+        random.nextBytes(mixed);
+        for (int i = 1000; i < mixed.length; i += 5000) {
+            Arrays.fill(mixed, i, i + 2000, (byte) i);
+        }
+        assertRoundTrip(mixed);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 10_000) {
+            text.append("{\"id\":").append(text.length() % 97).append(",\"name\":\"player\"}");
+        }
+        assertRoundTrip(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void notCompressed() {
+        byte[] data = new byte[1000];
+        assertNull("below threshold", Lz4Block.compress(data, 1001));
+        assertNull("too short", Lz4Block.compress(new byte[12], 0));
+        byte[] noise = new byte[10_000];
+        new Random(4).nextBytes(noise);
+        assertNull("incompressible", Lz4Block.compress(noise, 0));
+    }
+
+    @Test
+    public void truncated() {
+        assertCorrupt("too short", bytes(0, 0, 0, 1));
+        // 字面量长度扩展字节缺失
+        assertCorrupt("truncated", block(20, 0xF0));
+        // 偏移只有1字节
+        assertCorrupt("truncated", block(8, 0x40, 'a', 'b', 'c', 'd', 4));
+        // 匹配长度扩展字节缺失
+        assertCorrupt("truncated", block(40, 0x4F, 'a', 'b', 'c', 'd', 4, 0));
+        // 匹配之后没有最后的字面量序列
+        assertCorrupt("truncated", block(8, 0x40, 'a', 'b', 'c', 'd', 4, 0));
+        // 原始长度对不上
+        assertCorrupt("mismatch", block(10, 0x40, 'a', 'b', 'c', 'd'));
+        // 截断的真实数据
+        byte[] packed = Lz4Block.compress(new byte[5000], 0);
+        assertNotNull(packed);
+        for (int length = 0; length < packed.length; ++length) {
+            try {
+                Lz4Block.decompress(Arrays.copyOf(packed, length));
+                fail("truncated to " + length);
+            } catch (IllegalStateException e) {
+                // 任何截断都要报错
+            }
+        }
+    }
+
+    @Test
+    public void badOffset() {
+        assertCorrupt("bad lz4 offset", block(8, 0x40, 'a', 'b', 'c', 'd', 0, 0, 0x00));
+        assertCorrupt("bad lz4 offset", block(8, 0x40, 'a', 'b', 'c', 'd', 5, 0, 0x00));
+        assertCorrupt("bad lz4 offset", block(8, 0x00, 1, 0, 0x00));
+    }
+
+    @Test
+    public void badLength() {
+        assertCorrupt("bad lz4 raw length", block(-1, 0x00));
+        assertCorrupt("bad lz4 raw length", block(1 << 20, 0x00));
+        // 字面量超过原始长度
+        assertCorrupt("bad lz4 literal length", block(4, 0x50, 'a', 'b', 'c', 'd', 'e'));
+        // 字面量超过剩余数据
+        assertCorrupt("bad lz4 literal length", block(8, 0x50, 'a', 'b'));
+        // 匹配超过原始长度
+        assertCorrupt("bad lz4 match length", block(6, 0x40, 'a', 'b', 'c', 'd', 1, 0, 0x00));
+        assertCorrupt("bad lz4 match length", block(300, 0x4F, 'a', 'b', 'c', 'd', 1, 0, 0xFF, 0xFF, 0x00));
+    }
+
+    @Test
+    public void corruptOnlyThrowsIllegalState() {
+        byte[] data = new byte[20_000];
+        Random random = new Random(5);
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) random.nextInt(8);
+        }
+        byte[] packed = Lz4Block.compress(data, 0);
+        assertNotNull(packed);
+        for (int round = 0; round < 20_000; ++round) {
+            byte[] corrupt = packed.clone();
+            for (int flips = 1 + random.nextInt(3); flips > 0; --flips) {
+                corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt(256);
+            }
+            try {
+                assertEquals(data.length, Lz4Block.decompress(corrupt).length);
+            } catch (IllegalStateException e) {
+                // 损坏的数据只能报这一种错，不能越界
+            }
+        }
+    }
+
+    private static void assertRoundTrip(byte[] data) {
+        byte[] packed = Lz4Block.compress(data, 0);
+        assertNotNull("size " + data.length, packed);
+        assertTrue(packed.length < data.length);
+        assertArrayEquals(data, Lz4Block.decompress(packed));
+    }
+
+    private static void assertCorrupt(String message, byte[] packed) {
+        try {
+            Lz4Block.decompress(packed);
+            fail("expected: " + message);
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    /**
+     * 原始长度头 + LZ4块
+     * @param rawLength 原始长度
+     * @param block 块的字节
+     * @return 压缩后的数据
+     */
+    private static byte[] block(int rawLength, int... block) {
+        byte[] packed = new byte[Integer.BYTES + block.length];
+        packed[0] = (byte) (rawLength >>> 24);
+        packed[1] = (byte) (rawLength >>> 16);
+        packed[2] = (byte) (rawLength >>> 8);
+        packed[3] = (byte) rawLength;
+        for (int i = 0; i < block.length; ++i) {
+            packed[Integer.BYTES + i] = (byte) block[i];
+        }
+        return packed;
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
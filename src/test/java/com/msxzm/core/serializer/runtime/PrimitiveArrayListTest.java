@@ -0,0 +1,198 @@
+package com.msxzm.core.serializer.runtime;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 基础类型List的测试，与ArrayList对照
+ * @author zenghongming
+ * @date 2026/10/18 10:40
+ */
+public class PrimitiveArrayListTest {
+
+    @Test
+    public void randomOperationsMatchArrayList() {
+        IntArrayList list = new IntArrayList();
+        List<Integer> expected = new ArrayList<>();
+        Random random = new Random(2);
+        for (int i = 0; i < 100_000; ++i) {
+            int value = random.nextInt();
+            switch (random.nextInt(5)) {
+                case 0:
+                    list.addInt(value);
+                    expected.add(value);
+                    break;
+                case 1:
+                    int index = random.nextInt(expected.size() + 1);
+                    list.addInt(index, value);
+                    expected.add(index, value);
+                    break;
+                case 2:
+                    if (!expected.isEmpty()) {
+                        index = random.nextInt(expected.size());
+                        assertEquals((int) expected.remove(index), list.removeIntAt(index));
+                    }
+                    break;
+                case 3:
+                    if (!expected.isEmpty()) {
+                        index = random.nextInt(expected.size());
+                        assertEquals((int) expected.set(index, value), list.setInt(index, value));
+                    }
+                    break;
+                default:
+                    list.add(value);
+                    expected.add(value);
+                    break;
+            }
+            assertEquals(expected.size(), list.size());
+        }
+        assertEquals(expected, list);
+        int[] array = list.toIntArray();
+        assertEquals(expected.size(), array.length);
+        for (int i = 0; i < array.length; ++i) {
+            assertEquals((int) expected.get(i), array[i]);
+            assertEquals((int) expected.get(i), list.getInt(i));
+        }
+    }
+
+    @Test
+    public void unboxedOverloads() {
+        LongArrayList list = new LongArrayList(2);
+        list.addLong(Long.MIN_VALUE);
+        list.addLong(Long.MAX_VALUE);
+        list.addLong(1, -1L);
+        assertEquals(Arrays.asList(Long.MIN_VALUE, -1L, Long.MAX_VALUE), list);
+        assertEquals(-1L, list.getLong(1));
+        assertEquals(-1L, list.setLong(1, 5L));
+        assertEquals(5L, list.removeLongAt(1));
+        assertArrayEquals(new long[]{Long.MIN_VALUE, Long.MAX_VALUE}, list.toLongArray());
+        // 装箱的remove(int)按下标删除
+        assertEquals(Long.valueOf(Long.MIN_VALUE), list.remove(0));
+        // remove(Object)按值删除
+        assertTrue(list.remove((Object) Long.MAX_VALUE));
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void wrapArray() {
+        int[] elements = {1, 2, 3, 4};
+        IntArrayList list = new IntArrayList(elements, 3);
+        assertEquals(Arrays.asList(1, 2, 3), list);
+        assertSame(elements, list.elements());
+        // 容量够时写到原数组上
+        list.addInt(9);
+        assertEquals(9, elements[3]);
+        // 扩容后不再共用
+        list.addInt(10);
+        assertNotSame(elements, list.elements());
+        try {
+            new IntArrayList(elements, 5);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // 元素个数超过数组长度
+        }
+        try {
+            new LongArrayList(new long[2], -1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // 负的元素个数
+        }
+    }
+
+    @Test
+    public void indexOutOfBounds() {
+        IntArrayList list = new IntArrayList(new int[]{1, 2}, 2);
+        for (int index : new int[]{-1, 2}) {
+            try {
+                list.getInt(index);
+                fail();
+            } catch (IndexOutOfBoundsException e) {
+                // 只能访问有效部分
+            }
+        }
+        try {
+            list.addInt(3, 0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // 插入位置不能超过size
+        }
+        list.clear();
+        try {
+            list.removeIntAt(0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // 清空后底层数组还在，但不能访问
+        }
+    }
+
+    @Test
+    public void iteratorRemoveAndConcurrentModification() {
+        IntArrayList list = new IntArrayList();
+        for (int i = 0; i < 100; ++i) {
+            list.addInt(i);
+        }
+        for (Iterator<Integer> it = list.iterator(); it.hasNext(); ) {
+            if (it.next() % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(50, list.size());
+        assertEquals(1, list.getInt(0));
+        for (int mutation = 0; mutation < 3; ++mutation) {
+            Iterator<Integer> it = list.iterator();
+            it.next();
+            if (mutation == 0) {
+                list.addInt(7);
+            } else if (mutation == 1) {
+                list.removeIntAt(0);
+            } else {
+                list.clear();
+            }
+            try {
+                it.next();
+                fail();
+            } catch (ConcurrentModificationException e) {
+                // 遍历中的结构修改
+            }
+        }
+        LongArrayList longs = new LongArrayList();
+        longs.addLong(1L);
+        longs.addLong(2L);
+        ListIterator<Long> it = longs.listIterator();
+        it.next();
+        // set不是结构修改
+        longs.setLong(0, 3L);
+        assertEquals(Long.valueOf(2L), it.next());
+        it.add(4L);
+        assertEquals(Arrays.asList(3L, 2L, 4L), longs);
+    }
+
+    @Test
+    public void equalsAndHashCodeMatchArrayList() {
+        IntArrayList list = new IntArrayList();
+        List<Integer> expected = new ArrayList<>();
+        assertEquals(expected, list);
+        assertEquals(expected.hashCode(), list.hashCode());
+        for (int i = -20; i < 20; ++i) {
+            list.addInt(i * 31);
+            expected.add(i * 31);
+        }
+        assertEquals(expected, list);
+        assertEquals(list, expected);
+        assertEquals(expected.hashCode(), list.hashCode());
+        assertEquals(expected.toString(), list.toString());
+        list.setInt(3, 0);
+        assertNotEquals(expected, list);
+        // 内容相同、元素类型不同的不相等
+        LongArrayList longs = new LongArrayList();
+        for (int value : expected) {
+            longs.addLong(value);
+        }
+        assertNotEquals(longs, expected);
+        assertEquals(longs, new ArrayList<>(longs));
+        assertEquals(new ArrayList<>(longs).hashCode(), longs.hashCode());
+    }
+}
@@ -0,0 +1,222 @@
+package com.msxzm.core.serializer.runtime;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 基础类型HashMap的测试，与HashMap对照
+ * @author zenghongming
+ * @date 2026/10/18 10:30
+ */
+public class PrimitiveHashMapTest {
+
+    @Test
+    public void putRemoveAcrossTombstonesAndRehash() {
+        IntIntHashMap map = new IntIntHashMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(1);
+        // 键的范围小，反复删除再放入同一批键，槽中留下大量已删除标记并触发同容量的重新哈希
+        for (int i = 0; i < 200_000; ++i) {
+            int key = random.nextInt(256) - 128;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                int value = random.nextInt();
+                assertEquals(expected.put(key, value), map.put((Integer) key, (Integer) value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+        // 扩容
+        for (int key = 0; key < 10_000; ++key) {
+            map.put(key, -key);
+            expected.put(key, -key);
+        }
+        assertEquals(expected, map);
+        for (int key = 0; key < 10_000; key += 2) {
+            map.remove(key);
+            expected.remove(key);
+        }
+        for (int key = 0; key < 10_000; key += 4) {
+            map.put(key, key);
+            expected.put(key, key);
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.keySet(), map.keySet());
+    }
+
+    @Test
+    public void unboxedOverloads() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        long[] keys = {0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 32, 1L};
+        for (long key : keys) {
+            map.put(key, ~key);
+        }
+        assertEquals(keys.length, map.size());
+        for (long key : keys) {
+            assertTrue(map.containsKey(key));
+            assertEquals(~key, map.getOrDefault(key, 7L));
+            assertEquals(Long.valueOf(~key), map.get(key));
+        }
+        assertFalse(map.containsKey(2L));
+        assertEquals(7L, map.getOrDefault(2L, 7L));
+        // 覆盖已有的键不增加个数
+        map.put(-1L, 5L);
+        assertEquals(keys.length, map.size());
+        assertEquals(5L, map.getOrDefault(-1L, 0L));
+        // 按槽遍历与装箱的视图一致
+        Map<Long, Long> slots = new HashMap<>();
+        for (int slot = map.firstSlot(); slot >= 0; slot = map.nextSlot(slot)) {
+            slots.put(map.keyAt(slot), map.valueAt(slot));
+        }
+        assertEquals(new HashMap<>(map), slots);
+
+        IntLongHashMap intLong = new IntLongHashMap();
+        intLong.put(-3, Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, intLong.getOrDefault(-3, 0L));
+        LongIntHashMap longInt = new LongIntHashMap();
+        longInt.put(Long.MIN_VALUE, -3);
+        assertEquals(-3, longInt.getOrDefault(Long.MIN_VALUE, 0));
+    }
+
+    @Test
+    public void otherKeyTypesAreAbsent() {
+        IntIntHashMap map = new IntIntHashMap();
+        map.put(1, 2);
+        assertNull(map.get(1L));
+        assertNull(map.get("1"));
+        assertNull(map.remove(1L));
+        assertFalse(map.containsKey((Object) 1L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void iteratorRemove() {
+        IntIntHashMap map = new IntIntHashMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int key = 0; key < 1000; ++key) {
+            map.put(key, key * 3);
+            expected.put(key, key * 3);
+        }
+        for (Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, Integer> entry = it.next();
+            if (entry.getKey() % 3 == 0) {
+                it.remove();
+                expected.remove(entry.getKey());
+            }
+        }
+        assertEquals(expected, map);
+        Iterator<Integer> keys = map.keySet().iterator();
+        try {
+            keys.remove();
+            fail();
+        } catch (IllegalStateException e) {
+            // next之前不能删除
+        }
+        keys.next();
+        keys.remove();
+        try {
+            keys.remove();
+            fail();
+        } catch (IllegalStateException e) {
+            // 同一个元素不能删除两次
+        }
+        assertEquals(expected.size() - 1, map.size());
+    }
+
+    @Test
+    public void concurrentModification() {
+        IntIntHashMap map = new IntIntHashMap();
+        for (int key = 0; key < 10; ++key) {
+            map.put(key, key);
+        }
+        Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator();
+        it.next();
+        map.put(100, 100);
+        try {
+            it.next();
+            fail();
+        } catch (ConcurrentModificationException e) {
+            // 遍历中新增
+        }
+        it = map.entrySet().iterator();
+        it.next();
+        map.remove(5);
+        try {
+            it.remove();
+            fail();
+        } catch (ConcurrentModificationException e) {
+            // 遍历中删除
+        }
+        // 覆盖已有键的值不算结构修改
+        it = map.entrySet().iterator();
+        it.next();
+        map.put(1, 11);
+        it.next();
+        try {
+            new IntIntHashMap().entrySet().iterator().next();
+            fail();
+        } catch (NoSuchElementException e) {
+            // 空的没有下一个
+        }
+    }
+
+    @Test
+    public void equalsAndHashCodeMatchHashMap() {
+        IntIntHashMap map = new IntIntHashMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        for (int key = -50; key < 50; ++key) {
+            map.put(key, key * key);
+            expected.put(key, key * key);
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(expected.toString().length(), map.toString().length());
+        // 值不同
+        map.put(0, 1);
+        assertNotEquals(expected, map);
+        assertNotEquals(map, expected);
+        // Entry与HashMap的Entry互相比较
+        Map.Entry<Integer, Integer> entry = map.entrySet().iterator().next();
+        Map.Entry<Integer, Integer> same = new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue());
+        assertEquals(same, entry);
+        assertEquals(entry, same);
+        assertEquals(same.hashCode(), entry.hashCode());
+        // setValue写回map
+        entry.setValue(-7);
+        assertEquals(Integer.valueOf(-7), map.get(entry.getKey()));
+        // 同样内容的两个基础类型map
+        LongLongHashMap a = new LongLongHashMap();
+        LongLongHashMap b = new LongLongHashMap(1000);
+        for (long key = 0; key < 100; ++key) {
+            a.put(key, key);
+            b.put(99 - key, 99 - key);
+        }
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+
+    @Test
+    public void clearResetsTombstones() {
+        IntIntHashMap map = new IntIntHashMap();
+        for (int round = 0; round < 100; ++round) {
+            for (int key = 0; key < 100; ++key) {
+                map.put(key, round);
+            }
+            for (int key = 0; key < 100; key += 2) {
+                map.remove(key);
+            }
+            assertEquals(50, map.size());
+            map.clear();
+            assertTrue(map.isEmpty());
+            assertEquals(-1, map.firstSlot());
+        }
+    }
+}